@@ -0,0 +1,53 @@
+package com.luqi.weblog.admin.controller;
+
+import com.luqi.weblog.admin.service.AdminSearchService;
+import com.luqi.weblog.common.aspect.ApiOperationLog;
+import com.luqi.weblog.common.utils.Response;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/admin/search")
+@Api(tags = "Admin Search")
+public class AdminSearchController {
+
+    @Autowired
+    private AdminSearchService searchService;
+
+    @PostMapping("/cache/stats")
+    @ApiOperation(value = "Get search result cache statistics")
+    @ApiOperationLog(description = "Get search result cache statistics")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public Response findSearchCacheStats() {
+        return searchService.findSearchCacheStats();
+    }
+
+    @PostMapping("/metrics")
+    @ApiOperation(value = "Get search query metrics")
+    @ApiOperationLog(description = "Get search query metrics")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public Response findSearchMetrics() {
+        return searchService.findSearchMetrics();
+    }
+
+    @PostMapping("/reindex/progress")
+    @ApiOperation(value = "Get full index rebuild progress")
+    @ApiOperationLog(description = "Get full index rebuild progress")
+    public Response findSearchReindexProgress() {
+        return searchService.findSearchReindexProgress();
+    }
+
+    @PostMapping("/reindex")
+    @ApiOperation(value = "Rebuild the search index")
+    @ApiOperationLog(description = "Rebuild the search index")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public Response reindexSearch() {
+        return searchService.reindexSearch();
+    }
+
+}
@@ -1,11 +1,14 @@
 package com.luqi.weblog.admin.event.subscriber;
 
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.luqi.weblog.admin.event.DeleteArticleEvent;
 import com.luqi.weblog.admin.service.AdminStatisticsService;
-import com.luqi.weblog.search.LuceneHelper;
-import com.luqi.weblog.search.index.ArticleIndex;
+import com.luqi.weblog.common.domain.mapper.TagMapper;
+import com.luqi.weblog.search.queue.ArticleIndexQueue;
+import com.luqi.weblog.search.related.RelatedArticleCache;
+import com.luqi.weblog.search.suggest.ArticleSuggester;
+import com.luqi.weblog.search.summary.ArticleSummaryCache;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.lucene.index.Term;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationListener;
 import org.springframework.scheduling.annotation.Async;
@@ -22,9 +25,17 @@ import org.springframework.stereotype.Component;
 public class DeleteArticleSubscriber implements ApplicationListener<DeleteArticleEvent> {
 
     @Autowired
-    private LuceneHelper luceneHelper;
+    private ArticleIndexQueue articleIndexQueue;
     @Autowired
     private AdminStatisticsService statisticsService;
+    @Autowired
+    private TagMapper tagMapper;
+    @Autowired
+    private ArticleSuggester articleSuggester;
+    @Autowired
+    private RelatedArticleCache relatedArticleCache;
+    @Autowired
+    private ArticleSummaryCache articleSummaryCache;
 
     @Override
     @Async("threadPoolTaskExecutor")
@@ -38,12 +49,15 @@ public class DeleteArticleSubscriber implements ApplicationListener<DeleteArticl
         log.info("==> threadName: {}", threadName);
         log.info("==> Article delete event consumed successfully, articleId: {}", articleId);
 
-        // Delete condition, delete by article id
-        Term condition = new Term(ArticleIndex.COLUMN_ID, String.valueOf(articleId));
+        // Queue the deletion (by article ID); once it is searchable, drop the related articles of this article
+        // and recompute the articles that listed it
+        articleIndexQueue.delete(articleId)
+                .thenRun(() -> relatedArticleCache.remove(articleId));
 
-        long count = luceneHelper.deleteDocument(ArticleIndex.NAME, condition);
+        log.info("==> Queued article Lucene document deletion, articleId: {}", articleId);
 
-        log.info("==> Finished deleting article Lucene document, articleId: {}, affected rows: {}", articleId, count);
+        // Drop the cached summary, lean index hits of the article are skipped from now on
+        articleSummaryCache.invalidate(articleId);
         
         // Re-count total articles for each category
         statisticsService.statisticsCategoryArticleTotal();
@@ -52,5 +66,9 @@ public class DeleteArticleSubscriber implements ApplicationListener<DeleteArticl
         // Re-count total articles for each tag
         statisticsService.statisticsTagArticleTotal();
         log.info("==> Re-counted total articles for each tag");
+
+        // Refresh search suggestions (drop this article, tags left without articles are no longer suggested)
+        articleSuggester.removeArticle(articleId);
+        articleSuggester.reloadTags(tagMapper.selectList(Wrappers.emptyWrapper()));
     }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import com.luqi.weblog.admin.event.ReadArticleEvent;
 import com.luqi.weblog.common.domain.dos.StatisticsArticlePVDO;
 import com.luqi.weblog.common.domain.mapper.ArticleMapper;
 import com.luqi.weblog.common.domain.mapper.StatisticsArticlePVMapper;
+import com.luqi.weblog.search.queue.ArticleIndexQueue;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationListener;
@@ -29,6 +30,8 @@ public class ReadArticleSubscriber implements ApplicationListener<ReadArticleEve
     private ArticleMapper articleMapper;
     @Autowired
     private StatisticsArticlePVMapper articlePVMapper;
+    @Autowired
+    private ArticleIndexQueue articleIndexQueue;
 
     @Override
     @Async("threadPoolTaskExecutor")
@@ -46,6 +49,9 @@ public class ReadArticleSubscriber implements ApplicationListener<ReadArticleEve
         articleMapper.increaseReadNum(articleId);
         log.info("==> 文章阅读量 +1 操作成功，articleId: {}", articleId);
 
+        // 搜索索引中的阅读量：合并一段时间内的阅读事件，批量读取最新阅读量后原地更新列存数值，不重建文档
+        articleIndexQueue.readNumChanged(articleId);
+
         // 当日文章 PV 访问量 +1
         LocalDate currDate = LocalDate.now();
         
@@ -1,24 +1,29 @@
 package com.luqi.weblog.admin.event.subscriber;
 
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.luqi.weblog.admin.event.UpdateArticleEvent;
 import com.luqi.weblog.admin.service.AdminStatisticsService;
-import com.luqi.weblog.common.constant.Constants;
 import com.luqi.weblog.common.domain.dos.ArticleContentDO;
 import com.luqi.weblog.common.domain.dos.ArticleDO;
 import com.luqi.weblog.common.domain.mapper.ArticleContentMapper;
 import com.luqi.weblog.common.domain.mapper.ArticleMapper;
-import com.luqi.weblog.search.LuceneHelper;
-import com.luqi.weblog.search.index.ArticleIndex;
+import com.luqi.weblog.common.domain.mapper.TagMapper;
+import com.luqi.weblog.search.config.LuceneProperties;
+import com.luqi.weblog.search.index.ArticleDocumentBuilder;
+import com.luqi.weblog.search.index.ArticleRelationLoader;
+import com.luqi.weblog.search.queue.ArticleIndexQueue;
+import com.luqi.weblog.search.related.RelatedArticleCache;
+import com.luqi.weblog.search.suggest.ArticleSuggester;
+import com.luqi.weblog.search.summary.ArticleSummaryCache;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.lucene.document.Document;
-import org.apache.lucene.document.Field;
-import org.apache.lucene.document.TextField;
-import org.apache.lucene.index.Term;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationListener;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
+
 /**
  * @author: luqi
  * @url: www.luqi.com
@@ -30,13 +35,25 @@ import org.springframework.stereotype.Component;
 public class UpdateArticleSubscriber implements ApplicationListener<UpdateArticleEvent> {
 
     @Autowired
-    private LuceneHelper luceneHelper;
+    private ArticleIndexQueue articleIndexQueue;
     @Autowired
     private ArticleMapper articleMapper;
     @Autowired
     private ArticleContentMapper articleContentMapper;
     @Autowired
     private AdminStatisticsService statisticsService;
+    @Autowired
+    private TagMapper tagMapper;
+    @Autowired
+    private ArticleSuggester articleSuggester;
+    @Autowired
+    private ArticleRelationLoader articleRelationLoader;
+    @Autowired
+    private RelatedArticleCache relatedArticleCache;
+    @Autowired
+    private ArticleSummaryCache articleSummaryCache;
+    @Autowired
+    private LuceneProperties luceneProperties;
 
     @Override
     @Async("threadPoolTaskExecutor")
@@ -55,20 +72,17 @@ public class UpdateArticleSubscriber implements ApplicationListener<UpdateArticl
         ArticleContentDO articleContentDO = articleContentMapper.selectByArticleId(articleId);
 
         // Build document
-        Document document = new Document();
-        document.add(new TextField(ArticleIndex.COLUMN_ID, String.valueOf(articleId), Field.Store.YES));
-        document.add(new TextField(ArticleIndex.COLUMN_TITLE, articleDO.getTitle(), Field.Store.YES));
-        document.add(new TextField(ArticleIndex.COLUMN_COVER, articleDO.getCover(), Field.Store.YES));
-        document.add(new TextField(ArticleIndex.COLUMN_SUMMARY, articleDO.getSummary(), Field.Store.YES));
-        document.add(new TextField(ArticleIndex.COLUMN_CONTENT, articleContentDO.getContent(), Field.Store.YES));
-        document.add(new TextField(ArticleIndex.COLUMN_CREATE_TIME, Constants.DATE_TIME_FORMATTER.format(articleDO.getCreateTime()), Field.Store.YES));
+        Document document = ArticleDocumentBuilder.build(articleDO, articleContentDO.getContent(),
+                articleRelationLoader.load(Collections.singletonList(articleId)), luceneProperties.isLeanIndex());
+        // Hits of a lean index are assembled from the summary cache, refresh it before the document is searchable
+        articleSummaryCache.put(articleDO);
 
-        // Update condition (update by article ID)
-        Term condition = new Term(ArticleIndex.COLUMN_ID, String.valueOf(articleId));
+        // Queue the document (replaced by article ID), rapid successive edits are coalesced into one write;
+        // related articles are recomputed once the document is searchable
+        articleIndexQueue.upsert(articleId, document)
+                .thenRun(() -> relatedArticleCache.refresh(articleId));
 
-        long count = luceneHelper.updateDocument(ArticleIndex.NAME, document, condition);
-
-        log.info("==> Finished updating article Lucene document, articleId: {}, affected rows: {}", articleId, count);
+        log.info("==> Queued article Lucene document update, articleId: {}", articleId);
         
         // Re-count total articles for each category
         statisticsService.statisticsCategoryArticleTotal();
@@ -77,5 +91,9 @@ public class UpdateArticleSubscriber implements ApplicationListener<UpdateArticl
         // Re-count total articles for each tag
         statisticsService.statisticsTagArticleTotal();
         log.info("==> Re-counted total articles for each tag");
+
+        // Refresh search suggestions (title of this article, tags with their new article totals)
+        articleSuggester.upsertArticle(articleDO);
+        articleSuggester.reloadTags(tagMapper.selectList(Wrappers.emptyWrapper()));
     }
 }
\ No newline at end of file
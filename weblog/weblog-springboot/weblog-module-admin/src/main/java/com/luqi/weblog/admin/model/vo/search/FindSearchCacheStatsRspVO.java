@@ -0,0 +1,39 @@
+package com.luqi.weblog.admin.model.vo.search;
+
+import io.swagger.annotations.ApiModel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ApiModel(value = "查询搜索结果缓存统计出参 VO")
+public class FindSearchCacheStatsRspVO {
+    /**
+     * 缓存条目数
+     */
+    private Long entryCount;
+
+    /**
+     * 命中次数
+     */
+    private Long hitCount;
+
+    /**
+     * 未命中次数
+     */
+    private Long missCount;
+
+    /**
+     * 命中率
+     */
+    private Double hitRate;
+
+    /**
+     * 淘汰次数
+     */
+    private Long evictionCount;
+}
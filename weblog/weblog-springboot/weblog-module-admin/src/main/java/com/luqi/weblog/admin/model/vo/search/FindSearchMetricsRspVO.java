@@ -0,0 +1,47 @@
+package com.luqi.weblog.admin.model.vo.search;
+
+import com.luqi.weblog.search.metrics.FilterCacheMetrics;
+import com.luqi.weblog.search.metrics.QueryCount;
+import com.luqi.weblog.search.metrics.SearchMode;
+import com.luqi.weblog.search.metrics.SearchModeMetrics;
+import com.luqi.weblog.search.metrics.SlowQuery;
+import io.swagger.annotations.ApiModel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ApiModel(value = "查询搜索指标出参 VO")
+public class FindSearchMetricsRspVO {
+    /**
+     * 各搜索模式（普通、模糊、通配符）的耗时与命中数分布
+     */
+    private Map<SearchMode, SearchModeMetrics> modes;
+
+    /**
+     * 热门查询
+     */
+    private List<QueryCount> topQueries;
+
+    /**
+     * 零结果查询
+     */
+    private List<QueryCount> zeroResultQueries;
+
+    /**
+     * 最近的慢查询，最新的在前
+     */
+    private List<SlowQuery> slowQueries;
+
+    /**
+     * 过滤缓存（分类、标签、发布时间过滤）的命中情况
+     */
+    private FilterCacheMetrics filterCache;
+}
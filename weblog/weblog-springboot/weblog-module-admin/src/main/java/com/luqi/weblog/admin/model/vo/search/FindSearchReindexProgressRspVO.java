@@ -0,0 +1,44 @@
+package com.luqi.weblog.admin.model.vo.search;
+
+import io.swagger.annotations.ApiModel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ApiModel(value = "查询全量重建索引进度出参 VO")
+public class FindSearchReindexProgressRspVO {
+    /**
+     * 是否正在重建
+     */
+    private Boolean running;
+
+    /**
+     * 文章总数
+     */
+    private Long total;
+
+    /**
+     * 已写入的文章数
+     */
+    private Long indexed;
+
+    /**
+     * 已耗时（毫秒）
+     */
+    private Long elapsedMillis;
+
+    /**
+     * 写入速率（篇/秒）
+     */
+    private Double docsPerSecond;
+
+    /**
+     * 预计剩余时间（秒）
+     */
+    private Long etaSeconds;
+}
@@ -0,0 +1,30 @@
+package com.luqi.weblog.admin.service;
+
+import com.luqi.weblog.common.utils.Response;
+
+public interface AdminSearchService {
+
+    /**
+     * Get search result cache statistics
+     * @return
+     */
+    Response findSearchCacheStats();
+
+    /**
+     * Get search query metrics: latency and hit count distributions, top / zero-result queries, slow queries
+     * @return
+     */
+    Response findSearchMetrics();
+
+    /**
+     * Get progress of the full index rebuild
+     * @return
+     */
+    Response findSearchReindexProgress();
+
+    /**
+     * Rebuild the search index in the background, searches keep using the live index until the swap
+     * @return
+     */
+    Response reindexSearch();
+}
@@ -0,0 +1,127 @@
+package com.luqi.weblog.admin.service.impl;
+
+import com.google.common.cache.CacheStats;
+import com.luqi.weblog.admin.model.vo.search.FindSearchCacheStatsRspVO;
+import com.luqi.weblog.admin.model.vo.search.FindSearchMetricsRspVO;
+import com.luqi.weblog.admin.model.vo.search.FindSearchReindexProgressRspVO;
+import com.luqi.weblog.admin.service.AdminSearchService;
+import com.luqi.weblog.common.enums.ResponseCodeEnum;
+import com.luqi.weblog.common.exception.BizException;
+import com.luqi.weblog.common.utils.Response;
+import com.luqi.weblog.search.bulk.ArticleBulkIndexer;
+import com.luqi.weblog.search.bulk.BulkIndexProgress;
+import com.luqi.weblog.search.cache.SearchResultCache;
+import com.luqi.weblog.search.metrics.FilterCacheMetrics;
+import com.luqi.weblog.search.metrics.SearchMetrics;
+import com.luqi.weblog.search.metrics.SearchMetricsSnapshot;
+import com.luqi.weblog.search.sync.ArticleIndexSynchronizer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.search.LRUQueryCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+@Service
+@Slf4j
+public class AdminSearchServiceImpl implements AdminSearchService {
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+    @Autowired
+    private SearchMetrics searchMetrics;
+    @Autowired
+    private LRUQueryCache filterQueryCache;
+    @Autowired
+    private ArticleBulkIndexer articleBulkIndexer;
+    @Autowired
+    private ArticleIndexSynchronizer articleIndexSynchronizer;
+    @Autowired
+    @Qualifier("threadPoolTaskExecutor")
+    private Executor threadPoolTaskExecutor;
+
+    /**
+     * Get search result cache statistics
+     *
+     * @return
+     */
+    @Override
+    public Response findSearchCacheStats() {
+        CacheStats stats = searchResultCache.stats();
+
+        FindSearchCacheStatsRspVO vo = FindSearchCacheStatsRspVO.builder()
+                .entryCount(searchResultCache.size())
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .evictionCount(stats.evictionCount())
+                .build();
+
+        return Response.success(vo);
+    }
+
+    /**
+     * Get search query metrics
+     *
+     * @return
+     */
+    @Override
+    public Response findSearchMetrics() {
+        SearchMetricsSnapshot snapshot = searchMetrics.snapshot();
+
+        FindSearchMetricsRspVO vo = FindSearchMetricsRspVO.builder()
+                .modes(snapshot.getModes())
+                .topQueries(snapshot.getTopQueries())
+                .zeroResultQueries(snapshot.getZeroResultQueries())
+                .slowQueries(snapshot.getSlowQueries())
+                .filterCache(FilterCacheMetrics.of(filterQueryCache))
+                .build();
+
+        return Response.success(vo);
+    }
+
+    /**
+     * Get progress of the full index rebuild
+     *
+     * @return
+     */
+    @Override
+    public Response findSearchReindexProgress() {
+        BulkIndexProgress progress = articleBulkIndexer.progress();
+
+        FindSearchReindexProgressRspVO vo = FindSearchReindexProgressRspVO.builder()
+                .running(progress.isRunning())
+                .total(progress.getTotal())
+                .indexed(progress.getIndexed())
+                .elapsedMillis(progress.getElapsedMillis())
+                .docsPerSecond(progress.getDocsPerSecond())
+                .etaSeconds(progress.getEtaSeconds())
+                .build();
+
+        return Response.success(vo);
+    }
+
+    /**
+     * Rebuild the search index in the background (into a new generation, swapped in once verified)
+     *
+     * @return
+     */
+    @Override
+    public Response reindexSearch() {
+        boolean started;
+        try {
+            // Starting the rebuild is atomic, a concurrent request or the startup full sync makes it fail
+            started = articleIndexSynchronizer.rebuild(threadPoolTaskExecutor);
+        } catch (IOException e) {
+            log.error("==> Failed to start search index rebuild: ", e);
+            throw new BizException(ResponseCodeEnum.SYSTEM_ERROR);
+        }
+
+        if (!started) {
+            throw new BizException(ResponseCodeEnum.SEARCH_REINDEX_RUNNING);
+        }
+        return Response.success();
+    }
+}
@@ -0,0 +1,187 @@
+package com.luqi.weblog.benchmark;
+
+import com.luqi.weblog.benchmark.corpus.CorpusGenerator;
+import com.luqi.weblog.search.LuceneHelper;
+import com.luqi.weblog.search.cache.SearchResultCache;
+import com.luqi.weblog.search.config.LuceneConfig;
+import com.luqi.weblog.search.config.LuceneProperties;
+import com.luqi.weblog.search.engine.IndexDirectoryFactory;
+import com.luqi.weblog.search.engine.IndexRebuild;
+import com.luqi.weblog.search.engine.LuceneIndexEngine;
+import com.luqi.weblog.search.engine.SearchExecutor;
+import com.luqi.weblog.search.guard.QueryCostGuard;
+import com.luqi.weblog.search.index.ArticleIndex;
+import com.luqi.weblog.search.metrics.SearchMetrics;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.util.IOUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Article index of a synthetic corpus in a temporary directory, searched through the same
+ * LuceneHelper the application uses, with the same filter cache. The result cache is disabled so every search
+ * is executed, and segments are collected on the searching thread unless parallel search is enabled
+ **/
+public class BenchmarkIndex implements Closeable {
+
+    /**
+     * Batch size of bulk indexing, the same as the default of lucene.bulk-batch-size
+     */
+    public static final int BATCH_SIZE = 200;
+
+    private final Path path;
+    private final LuceneProperties properties;
+    private final LuceneIndexEngine engine;
+    private final LuceneHelper luceneHelper;
+    private final SearchExecutor searchExecutor;
+
+    private BenchmarkIndex(Path path, LuceneProperties properties, boolean filterCache) throws IOException {
+        this.path = path;
+        this.properties = properties;
+        this.engine = new LuceneIndexEngine(ArticleIndex.NAME, path, new IndexDirectoryFactory(properties.getStorage(),
+                properties.isMmapPreload(), properties.isNrtCachingEnabled(), properties.getNrtCachingMaxMergeSizeMb(),
+                properties.getNrtCachingMaxCachedMb()), properties.getRefreshIntervalMillis(), ArticleIndex.NGRAM_COLUMNS);
+        if (filterCache) {
+            this.engine.setQueryCache(LuceneConfig.newFilterQueryCache(properties), LuceneConfig.newFilterCachingPolicy());
+        }
+        this.searchExecutor = properties.isParallelSearch() ? LuceneConfig.newSearchExecutor(properties) : null;
+        this.engine.setSearchExecutor(searchExecutor);
+        this.engine.open();
+        this.luceneHelper = new LuceneHelper(Collections.singletonList(engine), properties,
+                new SearchResultCache(properties, Collections.singletonList(engine)), new SearchMetrics(properties),
+                new QueryCostGuard(properties));
+    }
+
+    /**
+     * Properties of a benchmark index: application defaults, without result cache and slow query log,
+     * and without parallel search so the results do not depend on the number of cores of the host
+     * @return
+     */
+    public static LuceneProperties properties() {
+        LuceneProperties properties = new LuceneProperties();
+        properties.setResultCacheEnabled(false);
+        properties.setSlowQueryMillis(Long.MAX_VALUE);
+        properties.setParallelSearch(false);
+        return properties;
+    }
+
+    /**
+     * Open an empty index
+     * @param properties
+     * @return
+     * @throws IOException
+     */
+    public static BenchmarkIndex empty(LuceneProperties properties) throws IOException {
+        return empty(properties, true);
+    }
+
+    /**
+     * Open an empty index
+     * @param properties
+     * @param filterCache Use the filter cache of the application, false for Lucene's default query cache
+     * @return
+     * @throws IOException
+     */
+    public static BenchmarkIndex empty(LuceneProperties properties, boolean filterCache) throws IOException {
+        return new BenchmarkIndex(Files.createTempDirectory("weblog-benchmark-"), properties, filterCache);
+    }
+
+    /**
+     * Open an index holding the first {@code docs} articles of the default corpus
+     * @param docs
+     * @return
+     * @throws IOException
+     */
+    public static BenchmarkIndex build(int docs) throws IOException {
+        return build(docs, true);
+    }
+
+    /**
+     * Open an index holding the first {@code docs} articles of the default corpus
+     * @param docs
+     * @param filterCache Use the filter cache of the application, false for Lucene's default query cache
+     * @return
+     * @throws IOException
+     */
+    public static BenchmarkIndex build(int docs, boolean filterCache) throws IOException {
+        return build(docs, properties(), filterCache);
+    }
+
+    /**
+     * Open an index holding the first {@code docs} articles of the default corpus
+     * @param docs
+     * @param properties
+     * @param filterCache Use the filter cache of the application, false for Lucene's default query cache
+     * @return
+     * @throws IOException
+     */
+    public static BenchmarkIndex build(int docs, LuceneProperties properties, boolean filterCache) throws IOException {
+        BenchmarkIndex index = empty(properties, filterCache);
+        CorpusGenerator generator = new CorpusGenerator();
+        IndexRebuild rebuild = index.engine.beginRebuild(index.properties.getBulkRamBufferSizeMb());
+        try {
+            for (int from = 0; from < docs; from += BATCH_SIZE) {
+                int to = Math.min(docs, from + BATCH_SIZE);
+                Document[] batch = new Document[to - from];
+                for (int i = from; i < to; i++) {
+                    batch[i - from] = CorpusGenerator.document(generator.article(i));
+                }
+                rebuild.addDocuments(Arrays.asList(batch));
+            }
+            rebuild.commit(Collections.emptyMap());
+        } catch (IOException | RuntimeException e) {
+            rebuild.abort();
+            index.close();
+            throw e;
+        }
+        index.engine.swap(rebuild);
+        return index;
+    }
+
+    /**
+     * Bulk index documents through a rebuild and swap it in, as a full reindex does
+     * @param documents
+     * @throws IOException
+     */
+    public void rebuild(List<Document> documents) throws IOException {
+        IndexRebuild rebuild = engine.beginRebuild(properties.getBulkRamBufferSizeMb());
+        try {
+            for (int from = 0; from < documents.size(); from += BATCH_SIZE) {
+                rebuild.addDocuments(documents.subList(from, Math.min(documents.size(), from + BATCH_SIZE)));
+            }
+            rebuild.commit(Collections.emptyMap());
+        } catch (IOException | RuntimeException e) {
+            rebuild.abort();
+            throw e;
+        }
+        engine.swap(rebuild);
+    }
+
+    public LuceneIndexEngine getEngine() {
+        return engine;
+    }
+
+    public LuceneHelper getLuceneHelper() {
+        return luceneHelper;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            engine.close();
+            if (searchExecutor != null) {
+                searchExecutor.close();
+            }
+        } finally {
+            IOUtils.rm(path);
+        }
+    }
+}
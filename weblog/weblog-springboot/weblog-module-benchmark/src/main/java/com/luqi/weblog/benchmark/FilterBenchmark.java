@@ -0,0 +1,116 @@
+package com.luqi.weblog.benchmark;
+
+import com.luqi.weblog.benchmark.corpus.CorpusGenerator;
+import com.luqi.weblog.search.index.ArticleDocumentBuilder;
+import com.luqi.weblog.search.index.ArticleIndex;
+import com.luqi.weblog.search.metrics.SearchMode;
+import com.luqi.weblog.search.model.SearchRequest;
+import com.luqi.weblog.search.model.SearchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Latency of the first result page of a keyword search, unfiltered or narrowed down to a category
+ * and to a category within the middle third of the publication period, with the filter cache of the application
+ * or with Lucene's default query cache (which skips segments of fewer than 10k documents)
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class FilterBenchmark {
+
+    /**
+     * Number of keywords cycled through, a power of two
+     */
+    private static final int QUERY_COUNT = 1024;
+
+    /**
+     * Category filtered on, a mid-frequency one of the corpus
+     */
+    private static final String CATEGORY_ID = "3";
+
+    private static final String[] COLUMNS = {
+            ArticleIndex.COLUMN_TITLE, ArticleIndex.COLUMN_SUMMARY, ArticleIndex.COLUMN_CONTENT};
+
+    public enum Filter {
+        NONE, CATEGORY, CATEGORY_AND_RANGE
+    }
+
+    @Param({"10000", "100000"})
+    private int docs;
+
+    @Param({"NONE", "CATEGORY", "CATEGORY_AND_RANGE"})
+    private Filter filter;
+
+    @Param({"true", "false"})
+    private boolean filterCache;
+
+    private BenchmarkIndex index;
+
+    private SearchRequest[] requests;
+
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        index = BenchmarkIndex.build(docs, filterCache);
+
+        CorpusGenerator generator = new CorpusGenerator();
+        Map<String, List<String>> filters = filter == Filter.NONE ? null : new HashMap<>();
+        if (filters != null) {
+            filters.put(ArticleIndex.COLUMN_CATEGORY_ID, Collections.singletonList(CATEGORY_ID));
+        }
+        Long rangeFrom = null;
+        Long rangeTo = null;
+        if (filter == Filter.CATEGORY_AND_RANGE) {
+            rangeFrom = ArticleDocumentBuilder.toEpochMilli(generator.article(docs / 3).getArticle().getCreateTime());
+            rangeTo = ArticleDocumentBuilder.toEpochMilli(generator.article(docs * 2 / 3).getArticle().getCreateTime());
+        }
+
+        String[] words = generator.queries(QUERY_COUNT, SearchMode.PLAIN);
+        requests = new SearchRequest[words.length];
+        for (int i = 0; i < words.length; i++) {
+            requests[i] = SearchRequest.builder()
+                    .index(ArticleIndex.NAME)
+                    .word(words[i])
+                    .columns(COLUMNS)
+                    .rangeColumn(ArticleIndex.COLUMN_CREATE_TIME)
+                    .rangeFrom(rangeFrom)
+                    .rangeTo(rangeTo)
+                    .filters(filters)
+                    .build();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index.close();
+    }
+
+    @Benchmark
+    public SearchResult search() {
+        return index.getLuceneHelper().search(requests[next++ & (QUERY_COUNT - 1)]);
+    }
+}
@@ -0,0 +1,85 @@
+package com.luqi.weblog.benchmark;
+
+import com.luqi.weblog.benchmark.corpus.CorpusGenerator;
+import com.luqi.weblog.search.index.ArticleIndex;
+import com.luqi.weblog.search.metrics.SearchMode;
+import com.luqi.weblog.search.model.SearchRequest;
+import com.luqi.weblog.search.model.SearchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Cost of highlighting a result page: none, title and summary in full,
+ * or title and summary plus content snippets (what the search page requests)
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class HighlightBenchmark {
+
+    private static final int QUERY_COUNT = 1024;
+
+    private static final String[] COLUMNS = {ArticleIndex.COLUMN_TITLE, ArticleIndex.COLUMN_SUMMARY};
+
+    public enum Highlight {
+        NONE,
+        COLUMNS,
+        COLUMNS_AND_SNIPPETS
+    }
+
+    @Param({"1000", "10000", "100000"})
+    private int docs;
+
+    @Param({"NONE", "COLUMNS", "COLUMNS_AND_SNIPPETS"})
+    private Highlight highlight;
+
+    private BenchmarkIndex index;
+
+    private SearchRequest[] requests;
+
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        index = BenchmarkIndex.build(docs);
+        String[] words = new CorpusGenerator().queries(QUERY_COUNT, SearchMode.PLAIN);
+        requests = new SearchRequest[words.length];
+        for (int i = 0; i < words.length; i++) {
+            requests[i] = SearchRequest.builder()
+                    .index(ArticleIndex.NAME)
+                    .word(words[i])
+                    .columns(COLUMNS)
+                    .highlightColumns(highlight == Highlight.NONE ? null : COLUMNS)
+                    .snippetColumns(highlight == Highlight.COLUMNS_AND_SNIPPETS ? new String[]{ArticleIndex.COLUMN_CONTENT} : null)
+                    .build();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index.close();
+    }
+
+    @Benchmark
+    public SearchResult search() {
+        return index.getLuceneHelper().search(requests[next++ & (QUERY_COUNT - 1)]);
+    }
+}
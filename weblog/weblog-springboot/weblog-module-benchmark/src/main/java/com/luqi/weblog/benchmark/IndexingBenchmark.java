@@ -0,0 +1,76 @@
+package com.luqi.weblog.benchmark;
+
+import com.luqi.weblog.benchmark.corpus.CorpusGenerator;
+import com.luqi.weblog.search.index.ArticleIndex;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.Term;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Indexing throughput: time to index the whole corpus into an empty index,
+ * in bulk (full reindex into a new generation) and one article at a time (publish / update events)
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class IndexingBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int docs;
+
+    /**
+     * Documents are built once, the benchmark only measures writing them
+     */
+    private List<Document> documents;
+
+    private BenchmarkIndex index;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        documents = new CorpusGenerator().documents(docs);
+    }
+
+    @Setup(Level.Invocation)
+    public void open() throws IOException {
+        index = BenchmarkIndex.empty(BenchmarkIndex.properties());
+    }
+
+    @TearDown(Level.Invocation)
+    public void close() throws IOException {
+        index.close();
+    }
+
+    @Benchmark
+    public void bulk() throws IOException {
+        index.rebuild(documents);
+    }
+
+    @Benchmark
+    public void incremental() throws IOException {
+        for (Document document : documents) {
+            index.getEngine().updateDocument(new Term(ArticleIndex.COLUMN_ID, document.get(ArticleIndex.COLUMN_ID)), document);
+        }
+        index.getEngine().commit();
+    }
+}
@@ -0,0 +1,89 @@
+package com.luqi.weblog.benchmark;
+
+import com.luqi.weblog.benchmark.corpus.Vocabulary;
+import com.luqi.weblog.search.index.ArticleIndex;
+import com.luqi.weblog.search.model.SearchRequest;
+import com.luqi.weblog.search.model.SearchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Latency of a deep result page, fetched by page number (offset) and by cursor (searchAfter).
+ * The keyword is the most common corpus word, so every page exists
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class PaginationBenchmark {
+
+    private static final int PAGE_SIZE = 10;
+
+    private static final String[] COLUMNS = {ArticleIndex.COLUMN_TITLE, ArticleIndex.COLUMN_SUMMARY};
+
+    @Param({"1000", "10000", "100000"})
+    private int docs;
+
+    @Param({"1", "10", "50"})
+    private int page;
+
+    private BenchmarkIndex index;
+
+    private SearchRequest offsetRequest;
+
+    private SearchRequest cursorRequest;
+
+    @Setup
+    public void setUp() throws IOException {
+        index = BenchmarkIndex.build(docs);
+        SearchRequest request = SearchRequest.builder()
+                .index(ArticleIndex.NAME)
+                .word(Vocabulary.wordAt(0))
+                .columns(COLUMNS)
+                .size(PAGE_SIZE)
+                .build();
+        offsetRequest = request.toBuilder().current(page).build();
+
+        // Walk to the page before, its cursor continues with the measured page
+        String cursor = null;
+        for (int i = 1; i < page; i++) {
+            cursor = index.getLuceneHelper().search(request.toBuilder().cursor(cursor).build()).getNextCursor();
+            if (cursor == null) {
+                throw new IllegalStateException("The corpus has fewer than " + page + " pages of hits");
+            }
+        }
+        cursorRequest = request.toBuilder().cursor(cursor).build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index.close();
+    }
+
+    @Benchmark
+    public SearchResult offset() {
+        return index.getLuceneHelper().search(offsetRequest);
+    }
+
+    @Benchmark
+    public SearchResult cursor() {
+        return index.getLuceneHelper().search(cursorRequest);
+    }
+}
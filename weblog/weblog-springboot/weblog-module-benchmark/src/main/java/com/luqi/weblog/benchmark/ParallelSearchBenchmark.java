@@ -0,0 +1,93 @@
+package com.luqi.weblog.benchmark;
+
+import com.luqi.weblog.benchmark.corpus.CorpusGenerator;
+import com.luqi.weblog.search.config.LuceneProperties;
+import com.luqi.weblog.search.index.ArticleIndex;
+import com.luqi.weblog.search.metrics.SearchMode;
+import com.luqi.weblog.search.model.SearchRequest;
+import com.luqi.weblog.search.model.SearchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Latency of the first result page of a single keyword search (with category and tag facets),
+ * collecting the segments on the searching thread or in parallel slices on the search executor (one thread per core).
+ * The index is flushed with a small RAM buffer so it has several segments, as a long-running NRT index does
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ParallelSearchBenchmark {
+
+    /**
+     * Number of keywords cycled through, a power of two
+     */
+    private static final int QUERY_COUNT = 1024;
+
+    /**
+     * RAM buffer of the bulk writer, small enough to flush several segments
+     */
+    private static final double RAM_BUFFER_SIZE_MB = 16;
+
+    private static final String[] COLUMNS = {
+            ArticleIndex.COLUMN_TITLE, ArticleIndex.COLUMN_SUMMARY, ArticleIndex.COLUMN_CONTENT};
+
+    @Param({"100000", "300000"})
+    private int docs;
+
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    private BenchmarkIndex index;
+
+    private SearchRequest[] requests;
+
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        LuceneProperties properties = BenchmarkIndex.properties();
+        properties.setParallelSearch(parallel);
+        properties.setBulkRamBufferSizeMb(RAM_BUFFER_SIZE_MB);
+        index = BenchmarkIndex.build(docs, properties, true);
+
+        String[] words = new CorpusGenerator().queries(QUERY_COUNT, SearchMode.PLAIN);
+        requests = new SearchRequest[words.length];
+        for (int i = 0; i < words.length; i++) {
+            requests[i] = SearchRequest.builder()
+                    .index(ArticleIndex.NAME)
+                    .word(words[i])
+                    .columns(COLUMNS)
+                    .facetDims(new String[]{ArticleIndex.FACET_CATEGORY, ArticleIndex.FACET_TAG})
+                    .build();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index.close();
+    }
+
+    @Benchmark
+    public SearchResult search() {
+        return index.getLuceneHelper().search(requests[next++ & (QUERY_COUNT - 1)]);
+    }
+}
@@ -0,0 +1,94 @@
+package com.luqi.weblog.benchmark;
+
+import com.luqi.weblog.benchmark.corpus.CorpusGenerator;
+import com.luqi.weblog.search.index.ArticleIndex;
+import com.luqi.weblog.search.metrics.SearchMode;
+import com.luqi.weblog.search.model.SearchRequest;
+import com.luqi.weblog.search.model.SearchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Latency of the first result page of a keyword search ranked by plain relevance,
+ * by relevance boosted with the read count, or sorted by the read count (both read from numeric doc values)
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class RankingBenchmark {
+
+    /**
+     * Number of keywords cycled through, a power of two
+     */
+    private static final int QUERY_COUNT = 1024;
+
+    /**
+     * Weight of the read count in the popularity boost, the application default
+     */
+    private static final float BOOST_WEIGHT = 0.1f;
+
+    private static final String[] COLUMNS = {
+            ArticleIndex.COLUMN_TITLE, ArticleIndex.COLUMN_SUMMARY, ArticleIndex.COLUMN_CONTENT};
+
+    public enum Ranking {
+        RELEVANCE, POPULAR, READS
+    }
+
+    @Param({"10000", "100000"})
+    private int docs;
+
+    @Param({"RELEVANCE", "POPULAR", "READS"})
+    private Ranking ranking;
+
+    private BenchmarkIndex index;
+
+    private SearchRequest[] requests;
+
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        index = BenchmarkIndex.build(docs);
+
+        String[] words = new CorpusGenerator().queries(QUERY_COUNT, SearchMode.PLAIN);
+        requests = new SearchRequest[words.length];
+        for (int i = 0; i < words.length; i++) {
+            requests[i] = SearchRequest.builder()
+                    .index(ArticleIndex.NAME)
+                    .word(words[i])
+                    .columns(COLUMNS)
+                    .sortColumn(ranking == Ranking.READS ? ArticleIndex.COLUMN_READ_NUM : null)
+                    .boostColumn(ranking == Ranking.POPULAR ? ArticleIndex.COLUMN_READ_NUM : null)
+                    .boostWeight(BOOST_WEIGHT)
+                    .build();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index.close();
+    }
+
+    @Benchmark
+    public SearchResult search() {
+        return index.getLuceneHelper().search(requests[next++ & (QUERY_COUNT - 1)]);
+    }
+}
@@ -0,0 +1,199 @@
+package com.luqi.weblog.benchmark.corpus;
+
+import com.luqi.weblog.common.domain.dos.ArticleDO;
+import com.luqi.weblog.common.domain.dos.ArticleFacetDO;
+import com.luqi.weblog.search.index.ArticleDocumentBuilder;
+import com.luqi.weblog.search.index.ArticleRelations;
+import com.luqi.weblog.search.metrics.SearchMode;
+import org.apache.lucene.document.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Deterministic generator of mixed Chinese / English articles.
+ * Article {@code i} only depends on the seed and {@code i}, so the same seed yields byte-identical corpora
+ * on every machine and JVM (java.util.Random is a specified algorithm), and any article can be generated on its own
+ **/
+public class CorpusGenerator {
+
+    /**
+     * Seed used by the benchmarks, changing it changes every published number
+     */
+    public static final long DEFAULT_SEED = 20240101L;
+
+    private static final int CATEGORY_COUNT = 12;
+
+    private static final int TAG_COUNT = 60;
+
+    private static final LocalDateTime START_TIME = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    private final long seed;
+
+    public CorpusGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public CorpusGenerator() {
+        this(DEFAULT_SEED);
+    }
+
+    /**
+     * Generate article {@code index} (0-based), its ID is {@code index + 1}
+     * @param index
+     * @return
+     */
+    public SyntheticArticle article(int index) {
+        Random random = random(index);
+        long id = index + 1L;
+
+        String title = sentence(random, 3 + random.nextInt(6));
+        String summary = sentence(random, 10 + random.nextInt(16));
+
+        // Markdown content: a few sections of paragraphs, sometimes a code block
+        StringBuilder content = new StringBuilder();
+        int sections = 1 + random.nextInt(4);
+        for (int s = 0; s < sections; s++) {
+            content.append("## ").append(sentence(random, 2 + random.nextInt(4))).append("\n\n");
+            int paragraphs = 1 + random.nextInt(3);
+            for (int p = 0; p < paragraphs; p++) {
+                content.append(sentence(random, 20 + random.nextInt(40))).append("\n\n");
+            }
+            if (random.nextInt(4) == 0) {
+                content.append("```java\n").append(Vocabulary.wordAt(random.nextInt(Vocabulary.size())))
+                        .append(".run();\n```\n\n");
+            }
+        }
+
+        ArticleDO article = ArticleDO.builder()
+                .id(id)
+                .title(title)
+                .summary(summary)
+                .cover("/cover/" + id + ".png")
+                .createTime(START_TIME.plusMinutes(index * 37L + random.nextInt(37)))
+                .build();
+
+        int categoryId = 1 + Math.min(Vocabulary.rank(random) % CATEGORY_COUNT, CATEGORY_COUNT - 1);
+        ArticleFacetDO category = new ArticleFacetDO(id, (long) categoryId, "分类" + categoryId);
+
+        Set<Integer> tagIds = new LinkedHashSet<>();
+        int tagCount = 1 + random.nextInt(3);
+        while (tagIds.size() < tagCount) {
+            tagIds.add(1 + Vocabulary.rank(random) % TAG_COUNT);
+        }
+        List<ArticleFacetDO> tags = new ArrayList<>(tagIds.size());
+        tagIds.forEach(tagId -> tags.add(new ArticleFacetDO(id, (long) tagId, "tag" + tagId)));
+
+        // Read counts spread log-uniformly over 1 to ~22k, drawn last so the text of the articles is unchanged
+        article.setReadNum((long) Math.exp(random.nextDouble() * 10));
+
+        return SyntheticArticle.builder()
+                .article(article)
+                .content(content.toString())
+                .category(category)
+                .tags(tags)
+                .build();
+    }
+
+    /**
+     * Build the Lucene document of an article, the same way the application indexes it
+     * @param article
+     * @return
+     */
+    public static Document document(SyntheticArticle article) {
+        Long id = article.getArticle().getId();
+        Map<Long, List<ArticleFacetDO>> categories = new HashMap<>(1);
+        categories.put(id, Collections.singletonList(article.getCategory()));
+        Map<Long, List<ArticleFacetDO>> tags = new HashMap<>(1);
+        tags.put(id, article.getTags());
+        return ArticleDocumentBuilder.build(article.getArticle(), article.getContent(), new ArticleRelations(categories, tags));
+    }
+
+    /**
+     * Documents of articles {@code 0 .. count - 1}
+     * @param count
+     * @return
+     */
+    public List<Document> documents(int count) {
+        List<Document> documents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            documents.add(document(article(i)));
+        }
+        return documents;
+    }
+
+    /**
+     * Query keywords with the same word distribution as the corpus, shaped for a search mode:
+     * misspelled English words for fuzzy search, prefixes with a trailing '*' for wildcard search
+     * @param count
+     * @param mode
+     * @return
+     */
+    public String[] queries(int count, SearchMode mode) {
+        Random random = new Random(seed ^ 0x5DEECE66DL ^ mode.ordinal());
+        String[] queries = new String[count];
+        for (int i = 0; i < count; i++) {
+            String word = Vocabulary.word(random);
+            // Fuzzy and wildcard queries only make sense for English words
+            while (mode != SearchMode.PLAIN && Vocabulary.isChinese(word)) {
+                word = Vocabulary.word(random);
+            }
+            switch (mode) {
+                case FUZZY:
+                    queries[i] = misspell(random, word);
+                    break;
+                case WILDCARD:
+                    queries[i] = word.substring(0, Math.min(word.length(), 2 + random.nextInt(3))) + "*";
+                    break;
+                default:
+                    // Some plain queries hold two words
+                    queries[i] = random.nextInt(4) == 0 ? word + " " + Vocabulary.word(random) : word;
+            }
+        }
+        return queries;
+    }
+
+    private Random random(int index) {
+        return new Random(seed * 0x9E3779B97F4A7C15L + index);
+    }
+
+    /**
+     * Words joined the way they appear in text: English words separated by spaces, Chinese words run together
+     */
+    private static String sentence(Random random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        boolean previousChinese = true;
+        for (int i = 0; i < words; i++) {
+            String word = Vocabulary.word(random);
+            boolean chinese = Vocabulary.isChinese(word);
+            if (sentence.length() > 0 && !(chinese && previousChinese)) {
+                sentence.append(' ');
+            }
+            sentence.append(word);
+            previousChinese = chinese;
+        }
+        return sentence.toString();
+    }
+
+    /**
+     * Replace one character (one edit)
+     */
+    private static String misspell(Random random, String word) {
+        if (word.length() < 4) {
+            return word;
+        }
+        char[] chars = word.toCharArray();
+        int position = 1 + random.nextInt(chars.length - 1);
+        chars[position] = (char) ('a' + random.nextInt(26));
+        return new String(chars);
+    }
+}
@@ -0,0 +1,29 @@
+package com.luqi.weblog.benchmark.corpus;
+
+import com.luqi.weblog.common.domain.dos.ArticleDO;
+import com.luqi.weblog.common.domain.dos.ArticleFacetDO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Generated article with its content, category and tags
+ **/
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SyntheticArticle {
+    private ArticleDO article;
+    /**
+     * Markdown content
+     */
+    private String content;
+    private ArticleFacetDO category;
+    private List<ArticleFacetDO> tags;
+}
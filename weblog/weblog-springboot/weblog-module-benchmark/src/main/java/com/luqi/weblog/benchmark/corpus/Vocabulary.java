@@ -0,0 +1,109 @@
+package com.luqi.weblog.benchmark.corpus;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Mixed English / Chinese vocabulary of the synthetic corpus.
+ * Words are drawn with a Zipf distribution so a few words are very common and most are rare,
+ * like real article text, which keeps posting list lengths and term expansion counts realistic
+ **/
+public final class Vocabulary {
+
+    private static final String[] ENGLISH = {
+            "java", "spring", "boot", "lucene", "search", "index", "query", "cache", "thread", "memory",
+            "docker", "redis", "mysql", "linux", "kafka", "vue", "react", "javascript", "python", "golang",
+            "kubernetes", "nginx", "maven", "gradle", "git", "jvm", "garbage", "collector", "heap", "stack",
+            "lambda", "stream", "optional", "generic", "interface", "annotation", "reflection", "proxy", "aspect", "bean",
+            "controller", "service", "mapper", "entity", "transaction", "isolation", "deadlock", "mutex", "semaphore", "latch",
+            "executor", "future", "promise", "async", "reactive", "netty", "socket", "http", "tcp", "websocket",
+            "token", "session", "cookie", "oauth", "security", "encryption", "hash", "signature", "certificate", "firewall",
+            "benchmark", "profiler", "latency", "throughput", "bottleneck", "optimization", "refactoring", "pattern", "singleton", "factory",
+            "builder", "observer", "strategy", "decorator", "adapter", "template", "visitor", "iterator", "composite", "facade",
+            "algorithm", "sorting", "binary", "tree", "graph", "dynamic", "programming", "recursion", "greedy", "backtracking",
+            "elasticsearch", "analyzer", "tokenizer", "segment", "merge", "posting", "highlight", "fuzzy", "wildcard", "ranking",
+            "deploy", "pipeline", "monitor", "logging", "metrics", "tracing", "alert", "dashboard", "cluster", "replica"
+    };
+
+    private static final String[] CHINESE = {
+            "搜索", "索引", "查询", "缓存", "线程", "内存", "数据库", "分布式", "微服务", "架构",
+            "性能", "优化", "并发", "事务", "锁", "队列", "消息", "存储", "网络", "协议",
+            "框架", "源码", "原理", "实践", "入门", "进阶", "教程", "笔记", "总结", "面试",
+            "算法", "数据结构", "排序", "链表", "哈希表", "二叉树", "图", "动态规划", "递归", "贪心",
+            "前端", "后端", "全栈", "组件", "路由", "状态", "接口", "注解", "反射", "代理",
+            "设计模式", "单例", "工厂", "观察者", "策略", "模板", "适配器", "装饰器", "建造者", "责任链",
+            "部署", "容器", "集群", "负载均衡", "监控", "日志", "告警", "灰度", "回滚", "扩容",
+            "分词", "中文", "全文检索", "高亮", "倒排", "打分", "排序规则", "相关度", "召回", "分页",
+            "垃圾回收", "虚拟机", "类加载", "字节码", "即时编译", "内存模型", "可见性", "原子性", "有序性", "死锁",
+            "博客", "文章", "分类", "标签", "评论", "归档", "发布", "草稿", "阅读", "推荐"
+    };
+
+    /**
+     * English and Chinese words interleaved by rank, so both languages appear among the common words
+     */
+    private static final String[] WORDS = interleave(ENGLISH, CHINESE);
+
+    /**
+     * Cumulative Zipf (s = 1) probabilities of the words by rank
+     */
+    private static final double[] CUMULATIVE = zipf(WORDS.length);
+
+    private Vocabulary() {
+    }
+
+    /**
+     * Draw a word
+     * @param random
+     * @return
+     */
+    public static String word(Random random) {
+        return WORDS[rank(random)];
+    }
+
+    /**
+     * Draw the rank of a word, 0 is the most common one
+     * @param random
+     * @return
+     */
+    public static int rank(Random random) {
+        int index = Arrays.binarySearch(CUMULATIVE, random.nextDouble());
+        return Math.min(index < 0 ? -index - 1 : index, WORDS.length - 1);
+    }
+
+    public static String wordAt(int rank) {
+        return WORDS[rank];
+    }
+
+    public static int size() {
+        return WORDS.length;
+    }
+
+    public static boolean isChinese(String word) {
+        return Character.UnicodeScript.of(word.codePointAt(0)) == Character.UnicodeScript.HAN;
+    }
+
+    private static String[] interleave(String[] english, String[] chinese) {
+        String[] words = new String[english.length + chinese.length];
+        int e = 0;
+        int c = 0;
+        for (int i = 0; i < words.length; i++) {
+            words[i] = (i % 2 == 0 && e < english.length) || c >= chinese.length ? english[e++] : chinese[c++];
+        }
+        return words;
+    }
+
+    private static double[] zipf(int size) {
+        double[] cumulative = new double[size];
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < size; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+}
@@ -0,0 +1,30 @@
+package com.luqi.weblog.common.domain.dos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: 文章关联的分类或标签（ID + 名称），用于构建搜索索引的分面字段
+ **/
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ArticleFacetDO {
+
+    private Long articleId;
+
+    /**
+     * 分类 / 标签 ID
+     */
+    private Long id;
+
+    /**
+     * 分类 / 标签名称
+     */
+    private String name;
+}
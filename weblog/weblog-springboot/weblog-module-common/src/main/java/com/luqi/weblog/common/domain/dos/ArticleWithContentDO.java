@@ -0,0 +1,39 @@
+package com.luqi.weblog.common.domain.dos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: 文章及其正文（t_article 关联 t_article_content），用于全量重建搜索索引
+ **/
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ArticleWithContentDO {
+
+    private Long id;
+
+    private String title;
+
+    private String cover;
+
+    private String summary;
+
+    private LocalDateTime createTime;
+
+    private LocalDateTime updateTime;
+
+    private Long readNum;
+
+    /**
+     * 文章正文
+     */
+    private String content;
+}
@@ -3,6 +3,10 @@ package com.luqi.weblog.common.domain.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.luqi.weblog.common.domain.dos.ArticleCategoryRelDO;
+import com.luqi.weblog.common.domain.dos.ArticleFacetDO;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
 import java.util.List;
 /**
  * @author: luqi
@@ -62,4 +66,18 @@ public interface ArticleCategoryRelMapper extends BaseMapper<ArticleCategoryRelD
         return selectList(Wrappers.<ArticleCategoryRelDO>lambdaQuery()
                 .eq(ArticleCategoryRelDO::getCategoryId, categoryId));
     }
+
+    /**
+     * 根据文章 ID 集合批量查询所属分类（关联分类表获取名称）
+     * @param articleIds
+     * @return
+     */
+    @Select("<script>" +
+            "SELECT r.article_id, t.id, t.name\n" +
+            "FROM t_article_category_rel r\n" +
+            "INNER JOIN t_category t ON t.id = r.category_id\n" +
+            "WHERE r.article_id IN " +
+            "<foreach collection='articleIds' item='articleId' open='(' separator=',' close=')'>#{articleId}</foreach>" +
+            "</script>")
+    List<ArticleFacetDO> selectCategoryFacetsByArticleIds(@Param("articleIds") List<Long> articleIds);
 }
@@ -4,6 +4,8 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.luqi.weblog.common.domain.dos.ArticleContentDO;
 
+import java.util.List;
+
 /**
  * @author: luqi
  * @url: www.luqi.com
@@ -32,6 +34,16 @@ public interface ArticleContentMapper extends BaseMapper<ArticleContentDO> {
                 .eq(ArticleContentDO::getArticleId, articleId));
     }
 
+    /**
+     * 根据文章 ID 批量查询
+     * @param articleIds
+     * @return
+     */
+    default List<ArticleContentDO> selectByArticleIds(List<Long> articleIds) {
+        return selectList(Wrappers.<ArticleContentDO>lambdaQuery()
+                .in(ArticleContentDO::getArticleId, articleIds));
+    }
+
     /**
      * 通过文章 ID 更新
      * @param articleContentDO
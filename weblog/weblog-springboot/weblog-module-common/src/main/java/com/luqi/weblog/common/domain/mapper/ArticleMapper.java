@@ -7,9 +7,15 @@ import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.luqi.weblog.common.domain.dos.ArticleDO;
 import com.luqi.weblog.common.domain.dos.ArticlePublishCountDO;
+import com.luqi.weblog.common.domain.dos.ArticleWithContentDO;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 
@@ -108,6 +114,49 @@ public interface ArticleMapper extends BaseMapper<ArticleDO> {
                 .select(ArticleDO::getReadNum));
     }
 
+    /**
+     * 查询指定文章的 ID 与阅读量（阅读量批量写入搜索索引）
+     * @param articleIds
+     * @return
+     */
+    default List<ArticleDO> selectReadNums(Collection<Long> articleIds) {
+        return selectList(Wrappers.<ArticleDO>lambdaQuery()
+                .select(ArticleDO::getId, ArticleDO::getReadNum)
+                .in(ArticleDO::getId, articleIds));
+    }
+
+    /**
+     * 查询所有文章的 ID、标题与阅读量（搜索索引对账及搜索联想使用，不查询其他字段）
+     * @return
+     */
+    default List<ArticleDO> selectAllTitles() {
+        return selectList(Wrappers.<ArticleDO>lambdaQuery()
+                .select(ArticleDO::getId, ArticleDO::getTitle, ArticleDO::getReadNum));
+    }
+
+    /**
+     * 查询 ID 大于 maxId，或更新时间不早于 updateTime 的文章（搜索索引增量同步）
+     * @param maxId 已同步的最大文章 ID
+     * @param updateTime 已同步的最大更新时间，为空时仅按 ID 查询
+     * @return
+     */
+    default List<ArticleDO> selectChangedSince(Long maxId, LocalDateTime updateTime) {
+        return selectList(Wrappers.<ArticleDO>lambdaQuery()
+                .gt(ArticleDO::getId, maxId) // 新增的文章
+                .or(Objects.nonNull(updateTime), wrapper -> wrapper.ge(ArticleDO::getUpdateTime, updateTime))); // 更新过的文章
+    }
+
+    /**
+     * 以流式游标按 ID 顺序读取所有文章及其正文（全量重建搜索索引），需在事务内遍历
+     * @return
+     */
+    @Select("SELECT a.id, a.title, a.cover, a.summary, a.create_time, a.update_time, a.read_num, c.content\n" +
+            "FROM t_article a\n" +
+            "LEFT JOIN t_article_content c ON c.article_id = a.id\n" +
+            "ORDER BY a.id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE) // MySQL 逐行流式读取，不一次性加载结果集
+    Cursor<ArticleWithContentDO> selectCursorWithContent();
+
     /**
      * 按日分组，并统计每日发布的文章数量
      * @param startDate
@@ -2,7 +2,10 @@ package com.luqi.weblog.common.domain.mapper;
 
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.luqi.weblog.common.config.InsertBatchMapper;
+import com.luqi.weblog.common.domain.dos.ArticleFacetDO;
 import com.luqi.weblog.common.domain.dos.ArticleTagRelDO;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 
 import java.util.List;
 
@@ -64,4 +67,18 @@ public interface ArticleTagRelMapper extends InsertBatchMapper<ArticleTagRelDO>
         return selectList(Wrappers.<ArticleTagRelDO>lambdaQuery()
                 .eq(ArticleTagRelDO::getTagId, tagId));
     }
+
+    /**
+     * 根据文章 ID 集合批量查询所属标签（关联标签表获取名称）
+     * @param articleIds
+     * @return
+     */
+    @Select("<script>" +
+            "SELECT r.article_id, t.id, t.name\n" +
+            "FROM t_article_tag_rel r\n" +
+            "INNER JOIN t_tag t ON t.id = r.tag_id\n" +
+            "WHERE r.article_id IN " +
+            "<foreach collection='articleIds' item='articleId' open='(' separator=',' close=')'>#{articleId}</foreach>" +
+            "</script>")
+    List<ArticleFacetDO> selectTagFacetsByArticleIds(@Param("articleIds") List<Long> articleIds);
 }
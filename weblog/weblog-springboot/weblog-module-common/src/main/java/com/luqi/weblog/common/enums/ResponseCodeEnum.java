@@ -33,6 +33,10 @@ public enum ResponseCodeEnum implements BaseExceptionInterface {
     ARTICLE_NOT_FOUND("20010", "Article does not exist!"),
     CATEGORY_CAN_NOT_DELETE("20011", "This category contains articles. Please delete the corresponding articles before deleting the category!"),
     TAG_CAN_NOT_DELETE("20012", "This tag contains articles. Please delete the corresponding articles before deleting the tag!"),
+    SEARCH_PAGE_TOO_DEEP("20013", "Search page is too deep, please page with the cursor returned by the previous page!"),
+    SEARCH_REINDEX_RUNNING("20014", "Search index is already being rebuilt, please check the progress!"),
+    SEARCH_QUERY_TOO_COMPLEX("20015", "Search query is too complex, please use fewer or more specific keywords!"),
+    SEARCH_CURSOR_INVALID("20016", "Search cursor is invalid or expired, please search again from the first page!"),
     ;
 
     // Exception code for errors
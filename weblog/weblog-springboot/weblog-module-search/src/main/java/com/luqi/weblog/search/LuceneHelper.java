@@ -1,293 +1,588 @@
 package com.luqi.weblog.search;
 
+import com.baomidou.mybatisplus.core.toolkit.StringUtils;
 import com.google.common.collect.Lists;
+import com.luqi.weblog.search.analyzer.NGramAnalyzer;
+import com.luqi.weblog.search.cache.SearchCacheKey;
+import com.luqi.weblog.search.cache.SearchResultCache;
 import com.luqi.weblog.search.config.LuceneProperties;
+import com.luqi.weblog.search.engine.LuceneIndexEngine;
+import com.luqi.weblog.search.facet.FacetIndexSearcher;
+import com.luqi.weblog.search.guard.QueryCostExceededException;
+import com.luqi.weblog.search.guard.QueryCostGuard;
+import com.luqi.weblog.search.guard.TimeLimitedCollectorManager;
+import com.luqi.weblog.search.highlight.SearchHighlighter;
+import com.luqi.weblog.search.metrics.SearchMetrics;
+import com.luqi.weblog.search.model.FacetCount;
+import com.luqi.weblog.search.model.InvalidSearchCursorException;
+import com.luqi.weblog.search.model.SearchCursor;
+import com.luqi.weblog.search.model.SearchRequest;
+import com.luqi.weblog.search.model.SearchResult;
+import com.luqi.weblog.search.query.ContainsQueryBuilder;
+import com.luqi.weblog.search.query.PopularityValuesSource;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.FileUtils;
-import org.apache.lucene.analysis.Analyzer;
-import com.luqi.weblog.search.analyzer.MultilingualAnalyzer;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsCollectorManager;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
 import org.apache.lucene.index.*;
+import org.apache.lucene.queries.function.FunctionScoreQuery;
 import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.*;
-import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.search.spell.DirectSpellChecker;
+import org.apache.lucene.search.spell.SuggestMode;
+import org.apache.lucene.search.spell.SuggestWord;
+import org.apache.lucene.util.BytesRef;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Component
 @Slf4j
 public class LuceneHelper {
 
+    /**
+     * Index engines, keyed by index name
+     */
+    private final Map<String, LuceneIndexEngine> engines;
+
+    private final LuceneProperties properties;
+
+    private final SearchResultCache resultCache;
+
+    private final SearchMetrics searchMetrics;
+
+    private final QueryCostGuard queryCostGuard;
+
+    /**
+     * Spell checker working directly on the term dictionary of the index
+     */
+    private final DirectSpellChecker spellChecker = new DirectSpellChecker();
+
     @Autowired
-    private LuceneProperties properties;
+    public LuceneHelper(List<LuceneIndexEngine> engines, LuceneProperties properties, SearchResultCache resultCache,
+                        SearchMetrics searchMetrics, QueryCostGuard queryCostGuard) {
+        this.properties = properties;
+        this.resultCache = resultCache;
+        this.searchMetrics = searchMetrics;
+        this.queryCostGuard = queryCostGuard;
+        this.engines = engines.stream()
+                .collect(Collectors.toMap(LuceneIndexEngine::getName, Function.identity()));
+    }
 
     /**
-     * Create index
+     * Get the engine of an index
      * @param index Index name
-     * @param documents Documents
+     * @return
      */
-    public void createIndex(String index, List<Document> documents) {
-        try {
-            String indexDir = properties.getIndexDir() + File.separator + index;
-            File dir = new File(indexDir);
+    public LuceneIndexEngine getEngine(String index) {
+        LuceneIndexEngine engine = engines.get(index);
+        if (engine == null) {
+            throw new IllegalArgumentException("Unknown Lucene index: " + index);
+        }
+        return engine;
+    }
 
-            // Check if index directory exists
-            if (dir.exists()) {
-                // Clean directory content
-                FileUtils.cleanDirectory(dir);
-            } else {
-                // Create directory if not exists
-                FileUtils.forceMkdir(dir);
-            }
+    /**
+     * Keyword search (supports fuzzy and wildcard search)
+     * Collects the requested page and the total hit count in one pass,
+     * the total is exact up to the configured total hits threshold.
+     * With a cursor the page is collected via searchAfter, so deep pages cost the same as the first one.
+     * Results are served from the result cache while the index generation is unchanged.
+     * Every search is recorded in the search metrics, slow ones are logged with their rewritten query.
+     * Searches over the query cost budget are refused, searches that run out of time return partial results
+     * @param request Search request
+     * @return
+     * @throws QueryCostExceededException The estimated cost of the search is over the budget
+     * @throws InvalidSearchCursorException The cursor is malformed or does not match the sort order
+     */
+    public SearchResult search(SearchRequest request) {
+        long start = System.nanoTime();
+        try {
+            LuceneIndexEngine engine = getEngine(request.getIndex());
+
+            // Normalize the request so equivalent searches share one cache entry
+            SearchRequest normalized = normalize(request);
+            queryCostGuard.checkRequest(normalized);
+
+            IndexSearcher searcher = engine.acquire();
+            try {
+                // Results are cached per reader, a refreshed or swapped index never serves stale results
+                SearchCacheKey cacheKey = new SearchCacheKey(normalized,
+                        searcher.getIndexReader().getReaderCacheHelper().getKey());
+                SearchResult cached = resultCache.get(cacheKey);
+                if (cached != null) {
+                    searchMetrics.record(normalized, System.nanoTime() - start, cached.getTotal(), true);
+                    return cached;
+                }
 
-            // Open index directory
-            Directory directory = FSDirectory.open(Paths.get(indexDir));
-
-            // Multilingual analyzer (supports Chinese and English)
-            Analyzer analyzer = new MultilingualAnalyzer();
-            IndexWriterConfig config = new IndexWriterConfig(analyzer);
-            // Create index
-            IndexWriter writer = new IndexWriter(directory, config);
-
-            // Add documents
-            documents.forEach(document -> {
-                try {
-                    writer.addDocument(document);
-                } catch (IOException e) {
-                    log.error("Error adding Lucene document: ", e);
+                SearchResult result = doSearch(engine, searcher, normalized);
+                // A partial result depends on timing, it must not be served to later searches
+                if (!result.isPartial()) {
+                    resultCache.put(cacheKey, result);
                 }
-            });
 
-            // Commit
-            writer.commit();
-            writer.close();
+                long elapsed = System.nanoTime() - start;
+                searchMetrics.record(normalized, elapsed, result.getTotal(), false);
+                if (searchMetrics.isSlow(elapsed)) {
+                    // Rebuilding the query is cheap next to the rewrite and term enumeration of the slow path
+                    searchMetrics.recordSlowQuery(normalized, searcher,
+                            withFilters(withBoost(buildQuery(engine, normalized), normalized), normalized), elapsed, result.getTotal());
+                }
+                return result;
+            } finally {
+                // Release searcher
+                engine.release(searcher);
+            }
+        } catch (QueryCostExceededException e) {
+            log.warn("==> Search refused by the query cost guard, word: {}, reason: {}", request.getWord(), e.getMessage());
+            throw e;
+        } catch (InvalidSearchCursorException e) {
+            // Bad client input, not a search failure
+            log.warn("==> Search refused, invalid cursor: {}", e.getMessage());
+            throw e;
         } catch (Exception e) {
-            log.error("Failed to create Lucene index: ", e);
+            log.error("Lucene query error: ", e);
+            return SearchResult.empty();
         }
     }
 
     /**
-     * Keyword search, query total data amount
-     * @param index Index name
-     * @param word Query keyword
-     * @param columns Fields to search
+     * Run a search on a searcher that is not published yet, to warm it up.
+     * Neither the result cache nor the search metrics see the search
+     * @param searcher New searcher of the index
+     * @param request Search request
+     * @throws Exception
+     */
+    public void warm(IndexSearcher searcher, SearchRequest request) throws Exception {
+        SearchRequest normalized = normalize(request);
+        queryCostGuard.checkRequest(normalized);
+        doSearch(getEngine(normalized.getIndex()), searcher, normalized);
+    }
+
+    /**
+     * Execute search on an acquired searcher
+     * @param engine Index engine
+     * @param searcher Searcher
+     * @param request Search request
      * @return
+     * @throws Exception
      */
-    public long searchTotal(String index, String word, String[] columns) {
-        try {
-            String indexDir = properties.getIndexDir() + File.separator + index;
-            // Open index directory
-            Directory directory = FSDirectory.open(Paths.get(indexDir));
-            IndexReader reader = DirectoryReader.open(directory);
-            IndexSearcher searcher = new IndexSearcher(reader);
-
-            // Multilingual analyzer (supports Chinese and English)
-            Analyzer analyzer = new MultilingualAnalyzer();
-            // Query parser
-            QueryParser parser = new MultiFieldQueryParser(columns, analyzer);
-            // Parse query keywords
-            Query query = parser.parse(word);
-
-            // Search documents
-            TopDocs totalDocs  = searcher.search(query, Integer.MAX_VALUE);
-            // Return document count
-            return totalDocs.totalHits.value;
-        } catch (Exception e) {
-            log.error("Lucene query error: ", e);
-            return 0;
+    private SearchResult doSearch(LuceneIndexEngine engine, IndexSearcher searcher, SearchRequest request) throws Exception {
+        // Build query, filters only restrict the matches and do not take part in scoring
+        Query query = withFilters(withBoost(buildQuery(engine, request), request), request);
+        queryCostGuard.checkQuery(searcher.getIndexReader(), query);
+
+        int current = request.getCurrent();
+        int size = request.getSize();
+
+        // Cursor paging: continue after the last hit of the previous page
+        ScoreDoc after = StringUtils.isNotBlank(request.getCursor()) ? SearchCursor.decode(request.getCursor()) : null;
+        // Offset paging: calculate pagination start position
+        int start = after == null ? (current - 1) * size : 0;
+
+        // Single collector pass: top (start + size) hits plus the total hit count.
+        // Sorted searches read the sort values from DocValues, no stored document is loaded to compare hits.
+        // Slices of segments are collected in parallel on the search executor (when configured), the collectors
+        // share the hit count threshold and the minimum competitive score, and their top hits are merged
+        int numHits = start + size;
+        int totalHitsThreshold = Math.max(numHits, properties.getTotalHitsThreshold());
+        Sort sort = buildSort(request);
+        if (after != null && (sort != null) != (after instanceof FieldDoc)) {
+            throw new InvalidSearchCursorException("Search cursor does not match the sort order");
+        }
+        // The shared manager of score collectors takes the cursor as a FieldDoc, only its doc and score are read
+        FieldDoc fieldAfter = after == null || after instanceof FieldDoc ? (FieldDoc) after : new FieldDoc(after.doc, after.score);
+        CollectorManager<?, ? extends TopDocs> topDocsManager = sort == null
+                ? TopScoreDocCollector.createSharedManager(numHits, fieldAfter, totalHitsThreshold)
+                : TopFieldCollector.createSharedManager(sort, numHits, fieldAfter, totalHitsThreshold);
+        // Facets are counted over all hits in the same pass
+        FacetsCollectorManager facetsManager = request.getFacetDims() == null || request.getFacetDims().length == 0
+                ? null : new FacetsCollectorManager();
+        // Collection is time limited, a search that runs out of time keeps the hits collected so far
+        CollectorManager<?, ?> collectorManager = facetsManager == null
+                ? topDocsManager : new MultiCollectorManager(topDocsManager, facetsManager);
+        TimeLimitedCollectorManager<?, ?> manager = queryCostGuard.limit(collectorManager);
+        Object collected = searcher.search(query, manager);
+        TopDocs allTopDocs = (TopDocs) (facetsManager == null ? collected : ((Object[]) collected)[0]);
+        FacetsCollector facetsCollector = facetsManager == null ? null : (FacetsCollector) ((Object[]) collected)[1];
+        boolean partial = manager.isTimedOut();
+        if (partial) {
+            log.warn("==> Search ran out of time, returning partial results, word: {}", request.getWord());
+        }
+
+        // Hits of the requested page
+        TopDocs topDocs = new TopDocs(allTopDocs.totalHits, allTopDocs.scoreDocs.length <= start ? new ScoreDoc[0]
+                : Arrays.copyOfRange(allTopDocs.scoreDocs, start, Math.min(allTopDocs.scoreDocs.length, start + size)));
+        ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+
+        // Return documents for specified page, or only their IDs from the doc values (no stored field is read)
+        List<Document> documents = Lists.newArrayList();
+        List<Long> ids = null;
+        if (request.getIdColumn() != null) {
+            ids = readIds(searcher, scoreDocs, request.getIdColumn());
+        } else {
+            for (ScoreDoc scoreDoc : scoreDocs) {
+                documents.add(searcher.doc(scoreDoc.doc));
+            }
+        }
+
+        // Highlight the page in one pass, match offsets come from the postings
+        List<Map<String, String>> highlights = highlight(engine, searcher, query, scoreDocs, request);
+
+        // A full page may be followed by another one
+        String nextCursor = scoreDocs.length == size ? SearchCursor.encode(scoreDocs[scoreDocs.length - 1]) : null;
+
+        // Counting facets visits every hit, so the total is exact
+        TotalHits totalHits = facetsCollector == null ? topDocs.totalHits
+                : new TotalHits(facetsCollector.getMatchingDocs().stream().mapToLong(docs -> docs.totalHits).sum(),
+                TotalHits.Relation.EQUAL_TO);
+        if (partial) {
+            // Hits after the time limit were never visited, the total is a lower bound
+            totalHits = new TotalHits(totalHits.value, TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO);
+        }
+
+        // Few hits for an exact search: look up a spelling correction, one term dictionary lookup per word
+        // instead of a fuzzy expansion on every query
+        String suggestion = null;
+        if (properties.isSpellCheckEnabled() && !partial && !request.isFuzzySearch() && !request.isWildcardSearch()
+                && after == null && current == 1 && totalHits.value <= properties.getSpellCheckMaxHits()) {
+            suggestion = suggestCorrection(engine, searcher.getIndexReader(), request);
         }
+
+        return SearchResult.builder()
+                .documents(documents)
+                .ids(ids)
+                .highlights(highlights)
+                .total(totalHits.value)
+                .totalExact(totalHits.relation == TotalHits.Relation.EQUAL_TO)
+                .partial(partial)
+                .nextCursor(nextCursor)
+                .suggestion(suggestion)
+                .facets(countFacets(searcher, facetsCollector, request))
+                .build();
     }
 
     /**
-     * Keyword search
-     * @param index Index name
-     * @param word Query keyword
-     * @param columns Fields to search
-     * @param current Current page
-     * @param size Page size
-     * @return
+     * Read the IDs of the hits from a numeric DocValues field
+     * @param searcher Searcher the hits come from
+     * @param scoreDocs Hits of the page
+     * @param idColumn Numeric DocValues field holding the ID
+     * @return IDs aligned with scoreDocs
+     * @throws IOException
      */
-    public List<Document> search(String index, String word, String[] columns, int current, int size) {
-        return search(index, word, columns, current, size, false, 2);
+    private List<Long> readIds(IndexSearcher searcher, ScoreDoc[] scoreDocs, String idColumn) throws IOException {
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        List<Long> ids = new ArrayList<>(scoreDocs.length);
+        for (ScoreDoc scoreDoc : scoreDocs) {
+            LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(scoreDoc.doc, leaves));
+            // Doc values iterate forward only, a fresh iterator per hit keeps the hits in score order
+            NumericDocValues values = DocValues.getNumeric(leaf.reader(), idColumn);
+            if (!values.advanceExact(scoreDoc.doc - leaf.docBase)) {
+                throw new IllegalStateException("Document has no " + idColumn + " doc value: " + scoreDoc.doc);
+            }
+            ids.add(values.longValue());
+        }
+        return ids;
     }
 
     /**
-     * Keyword search (supports fuzzy and wildcard search)
-     * @param index Index name
-     * @param word Query keyword
-     * @param columns Fields to search
-     * @param current Current page
-     * @param size Page size
-     * @param fuzzySearch Enable fuzzy search
-     * @param maxEdits Max edit distance for fuzzy search (0-2)
-     * @return
+     * Count the requested facet dimensions over the collected hits
+     * @param searcher Searcher the hits come from
+     * @param facetsCollector Collector of all hits, null when no facet was requested
+     * @param request Search request
+     * @return Dimension -> values by descending count
+     * @throws IOException
      */
-    public List<Document> search(String index, String word, String[] columns, int current, int size, boolean fuzzySearch, int maxEdits) {
-        return search(index, word, columns, current, size, fuzzySearch, maxEdits, false);
+    private Map<String, List<FacetCount>> countFacets(IndexSearcher searcher, FacetsCollector facetsCollector,
+                                                      SearchRequest request) throws IOException {
+        if (facetsCollector == null || !(searcher instanceof FacetIndexSearcher)) {
+            return Collections.emptyMap();
+        }
+        SortedSetDocValuesReaderState state = ((FacetIndexSearcher) searcher).getFacetState();
+        if (state == null) {
+            return Collections.emptyMap();
+        }
+
+        Facets facets = new SortedSetDocValuesFacetCounts(state, facetsCollector);
+        Map<String, List<FacetCount>> counts = new LinkedHashMap<>();
+        for (String dim : request.getFacetDims()) {
+            // Dimensions no document has been indexed with yet have no counts
+            FacetResult result = state.getPrefixToOrdRange().containsKey(dim)
+                    ? facets.getTopChildren(request.getFacetLimit(), dim) : null;
+            counts.put(dim, result == null ? Collections.emptyList() : Arrays.stream(result.labelValues)
+                    .map(labelValue -> new FacetCount(labelValue.label, labelValue.value.longValue()))
+                    .collect(Collectors.toList()));
+        }
+        return counts;
     }
 
     /**
-     * Keyword search (supports fuzzy and wildcard search)
-     * @param index Index name
-     * @param word Query keyword
-     * @param columns Fields to search
-     * @param current Current page
-     * @param size Page size
-     * @param fuzzySearch Enable fuzzy search
-     * @param maxEdits Max edit distance for fuzzy search (0-2)
-     * @param wildcardSearch Enable wildcard search
-     * @return
+     * Highlight the hits of a page
+     * Whole columns are highlighted in full, a column with an n-gram sub-field falls back to the sub-field's
+     * matches (substring and Chinese bigram matches) when the column itself has none.
+     * Snippet columns return their best passages
+     * @param engine Index engine
+     * @param searcher Searcher the hits come from
+     * @param query Executed query
+     * @param scoreDocs Hits of the page
+     * @param request Search request
+     * @return Highlights per hit, aligned with scoreDocs
+     * @throws IOException
      */
-    public List<Document> search(String index, String word, String[] columns, int current, int size, boolean fuzzySearch, int maxEdits, boolean wildcardSearch) {
-        try {
-            String indexDir = properties.getIndexDir() + File.separator + index;
-            // Open index directory
-            Directory directory = FSDirectory.open(Paths.get(indexDir));
-            IndexReader reader = DirectoryReader.open(directory);
-            IndexSearcher searcher = new IndexSearcher(reader);
+    private List<Map<String, String>> highlight(LuceneIndexEngine engine, IndexSearcher searcher, Query query,
+                                                ScoreDoc[] scoreDocs, SearchRequest request) throws IOException {
+        String[] wholeColumns = request.getHighlightColumns() == null ? new String[0] : request.getHighlightColumns();
+        String[] snippetColumns = request.getSnippetColumns() == null ? new String[0] : request.getSnippetColumns();
+        if (scoreDocs.length == 0 || (wholeColumns.length == 0 && snippetColumns.length == 0)) {
+            return Collections.emptyList();
+        }
 
-            Query query;
-            if (wildcardSearch) {
-                // Build wildcard query
-                query = buildWildcardQuery(word, columns);
-            } else if (fuzzySearch) {
-                // Build fuzzy query
-                query = buildFuzzyQuery(word, columns, maxEdits);
-            } else {
-                // Multilingual analyzer (supports Chinese and English)
-                Analyzer analyzer = new MultilingualAnalyzer();
-                // Query parser
-                QueryParser parser = new MultiFieldQueryParser(columns, analyzer);
-                // Parse query keywords
-                query = parser.parse(word);
+        Set<String> wholeFields = new LinkedHashSet<>();
+        Map<String, String> sourceFields = new HashMap<>();
+        for (String column : wholeColumns) {
+            wholeFields.add(column);
+            if (engine.hasNGramField(column)) {
+                wholeFields.add(NGramAnalyzer.fieldOf(column));
+                sourceFields.put(NGramAnalyzer.fieldOf(column), column);
+            }
+        }
+        Set<String> snippetFields = new LinkedHashSet<>(Arrays.asList(snippetColumns));
+
+        List<String> fields = new ArrayList<>(wholeFields);
+        fields.addAll(snippetFields);
+        int[] maxPassages = fields.stream()
+                .mapToInt(field -> snippetFields.contains(field) ? properties.getHighlightSnippetPassages() : 1)
+                .toArray();
+        int[] docIds = Arrays.stream(scoreDocs).mapToInt(scoreDoc -> scoreDoc.doc).toArray();
+
+        SearchHighlighter highlighter = new SearchHighlighter(searcher, engine.getAnalyzer(), wholeFields, snippetFields, sourceFields);
+        Map<String, String[]> fieldHighlights = highlighter.highlightFields(fields.toArray(new String[0]), query, docIds, maxPassages);
+
+        List<Map<String, String>> highlights = new ArrayList<>(docIds.length);
+        for (int i = 0; i < docIds.length; i++) {
+            Map<String, String> docHighlights = new HashMap<>();
+            for (String column : wholeColumns) {
+                String value = fieldHighlights.get(column)[i];
+                if (value == null && engine.hasNGramField(column)) {
+                    value = fieldHighlights.get(NGramAnalyzer.fieldOf(column))[i];
+                }
+                if (value != null) {
+                    docHighlights.put(column, value);
+                }
             }
+            for (String column : snippetColumns) {
+                String value = fieldHighlights.get(column)[i];
+                if (value != null) {
+                    docHighlights.put(column, value);
+                }
+            }
+            highlights.add(docHighlights);
+        }
+        return highlights;
+    }
 
-            // Execute search, get first limit matching results
-            int limit = current * size;
-            TopDocs topDocs = searcher.search(query, limit); // Search first limit results
-
-            // Array of matching documents
-            ScoreDoc[] scoreDocs = topDocs.scoreDocs;
-            // Calculate pagination start - end position
-            int start = (current - 1) * size;
-            int end = Math.min(start + size, scoreDocs.length);
-
-            // Return documents for specified page
-            List<Document> documents = Lists.newArrayList();
-            for (int i = start; i < end; i++) {
-                Document doc = searcher.doc(scoreDocs[i].doc);
-                documents.add(doc);
+    /**
+     * Spelling correction of the query keyword ("did you mean")
+     * Every non-Chinese word is checked against the term dictionary of each search field,
+     * a word is replaced by the best more popular term within two edits
+     * @param engine Index engine
+     * @param reader Index reader
+     * @param request Search request
+     * @return Corrected keyword, null if no word was corrected
+     * @throws IOException
+     */
+    private String suggestCorrection(LuceneIndexEngine engine, IndexReader reader, SearchRequest request) throws IOException {
+        String[] words = request.getWord().split(" ");
+        boolean corrected = false;
+
+        for (int i = 0; i < words.length; i++) {
+            String word = words[i].toLowerCase();
+            // Skip query syntax and Chinese, whose dictionary terms come from word segmentation
+            if (word.isEmpty() || !word.chars().allMatch(Character::isLetterOrDigit)
+                    || engine.getMultilingualAnalyzer().containsChinese(word)) {
+                continue;
             }
 
-            // Release resources
-            reader.close();
-            return documents;
-        } catch (Exception e) {
-            log.error("Lucene query error: ", e);
+            SuggestWord best = null;
+            for (String column : request.getColumns()) {
+                SuggestWord[] suggestWords = spellChecker.suggestSimilar(new Term(column, word), 1, reader,
+                        SuggestMode.SUGGEST_MORE_POPULAR);
+                if (suggestWords.length > 0 && (best == null || suggestWords[0].score > best.score
+                        || (suggestWords[0].score == best.score && suggestWords[0].freq > best.freq))) {
+                    best = suggestWords[0];
+                }
+            }
+
+            if (best != null && !best.string.equals(word)) {
+                words[i] = best.string;
+                corrected = true;
+            }
+        }
+        return corrected ? String.join(" ", words) : null;
+    }
+
+    /**
+     * Normalize the query keyword (trim and collapse whitespace)
+     * @param request Search request
+     * @return Normalized copy of the request
+     */
+    private SearchRequest normalize(SearchRequest request) {
+        String word = request.getWord() == null ? "" : request.getWord().trim().replaceAll("\\s+", " ");
+        return request.toBuilder().word(word).build();
+    }
+
+    /**
+     * Sort of the request, null when sorting by relevance
+     * @param request Search request
+     * @return
+     */
+    private Sort buildSort(SearchRequest request) {
+        if (StringUtils.isBlank(request.getSortColumn())) {
             return null;
         }
+        return new Sort(new SortField(request.getSortColumn(), SortField.Type.LONG, !request.isSortAscending()));
     }
 
     /**
-     * Fuzzy query total data amount
-     * @param index Index name
-     * @param word Query keyword
-     * @param columns Fields to search
-     * @param maxEdits Max edit distance
+     * Multiply the relevance score by the popularity of each hit, read from a numeric DocValues field.
+     * Only the keyword query is wrapped, filters stay outside; sorted searches are not scored and are left alone
+     * @param query Keyword query
+     * @param request Search request
      * @return
      */
-    public long searchFuzzyTotal(String index, String word, String[] columns, int maxEdits) {
-        try {
-            String indexDir = properties.getIndexDir() + File.separator + index;
-            // Open index directory
-            Directory directory = FSDirectory.open(Paths.get(indexDir));
-            IndexReader reader = DirectoryReader.open(directory);
-            IndexSearcher searcher = new IndexSearcher(reader);
+    private Query withBoost(Query query, SearchRequest request) {
+        if (StringUtils.isBlank(request.getBoostColumn()) || request.getBoostWeight() <= 0
+                || StringUtils.isNotBlank(request.getSortColumn())) {
+            return query;
+        }
+        return FunctionScoreQuery.boostByValue(query,
+                new PopularityValuesSource(request.getBoostColumn(), request.getBoostWeight()));
+    }
 
-            // Build fuzzy query
-            Query query = buildFuzzyQuery(word, columns, maxEdits);
-
-            // Search documents
-            TopDocs totalDocs = searcher.search(query, Integer.MAX_VALUE);
-            // Release resources
-            reader.close();
-            // Return document count
-            return totalDocs.totalHits.value;
-        } catch (Exception e) {
-            log.error("Fuzzy query Lucene error: ", e);
-            return 0;
+    /**
+     * Restrict the query with non-scoring FILTER clauses: the requested range of a long point field
+     * and the exact term filters (drill-down)
+     * @param query Keyword query
+     * @param request Search request
+     * @return
+     */
+    private Query withFilters(Query query, SearchRequest request) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder().add(query, BooleanClause.Occur.MUST);
+        boolean filtered = false;
+
+        if (StringUtils.isNotBlank(request.getRangeColumn())
+                && (request.getRangeFrom() != null || request.getRangeTo() != null)) {
+            long from = request.getRangeFrom() == null ? Long.MIN_VALUE : request.getRangeFrom();
+            long to = request.getRangeTo() == null ? Long.MAX_VALUE : request.getRangeTo();
+            builder.add(LongPoint.newRangeQuery(request.getRangeColumn(), from, to), BooleanClause.Occur.FILTER);
+            filtered = true;
         }
+
+        if (request.getFilters() != null) {
+            for (Map.Entry<String, List<String>> filter : request.getFilters().entrySet()) {
+                if (filter.getValue() == null || filter.getValue().isEmpty()) {
+                    continue;
+                }
+                // Any of the values matches
+                List<BytesRef> terms = filter.getValue().stream().map(BytesRef::new).collect(Collectors.toList());
+                builder.add(new TermInSetQuery(filter.getKey(), terms), BooleanClause.Occur.FILTER);
+                filtered = true;
+            }
+        }
+        return filtered ? builder.build() : query;
     }
 
     /**
-     * Wildcard query total data amount
-     * @param index Index name
-     * @param word Query keyword
-     * @param columns Fields to search
+     * Build query according to the search mode
+     * @param engine Index engine
+     * @param request Search request
      * @return
+     * @throws ParseException
+     * @throws IOException
      */
-    public long searchWildcardTotal(String index, String word, String[] columns) {
-        try {
-            String indexDir = properties.getIndexDir() + File.separator + index;
-            // Open index directory
-            Directory directory = FSDirectory.open(Paths.get(indexDir));
-            IndexReader reader = DirectoryReader.open(directory);
-            IndexSearcher searcher = new IndexSearcher(reader);
+    private Query buildQuery(LuceneIndexEngine engine, SearchRequest request) throws ParseException, IOException {
+        String word = request.getWord();
+        String[] columns = request.getColumns();
 
+        if (request.isWildcardSearch()) {
             // Build wildcard query
-            Query query = buildWildcardQuery(word, columns);
-
-            // Search documents
-            TopDocs totalDocs = searcher.search(query, Integer.MAX_VALUE);
-            // Release resources
-            reader.close();
-            // Return document count
-            return totalDocs.totalHits.value;
-        } catch (Exception e) {
-            log.error("Wildcard query Lucene error: ", e);
-            return 0;
+            return buildWildcardQuery(engine, word, columns);
+        } else if (request.isFuzzySearch()) {
+            // Build fuzzy query
+            return buildFuzzyQuery(engine, word, columns, request.getMaxEdits());
+        }
+
+        // Query parser
+        QueryParser parser = new MultiFieldQueryParser(columns, engine.getAnalyzer());
+        // Parse query keywords
+        Query query = parser.parse(word);
+
+        // Chinese queries also match CJK bigrams of the n-gram sub-fields, so they hit real terms
+        // even when word segmentation of the query differs from the indexed text
+        if (engine.getMultilingualAnalyzer().containsChinese(word)) {
+            Query containsQuery = buildContainsQuery(engine, word, columns);
+            if (containsQuery != null) {
+                return new BooleanQuery.Builder()
+                        .add(query, BooleanClause.Occur.SHOULD)
+                        .add(containsQuery, BooleanClause.Occur.SHOULD)
+                        .build();
+            }
         }
+        return query;
     }
 
     /**
      * Build fuzzy query
+     * Expansion is bounded: short terms allow fewer edits, the first characters must match exactly,
+     * and every fuzzy term is rewritten into at most the configured number of similar terms
+     * @param engine Index engine
      * @param word Query keyword
      * @param columns Search fields
      * @param maxEdits Maximum edit distance
      * @return
      */
-    private Query buildFuzzyQuery(String word, String[] columns, int maxEdits) {
+    private Query buildFuzzyQuery(LuceneIndexEngine engine, String word, String[] columns, int maxEdits) {
         // Limit edit distance between 0-2
         maxEdits = Math.max(0, Math.min(2, maxEdits));
-        
+
         // Split query terms
         String[] terms = word.trim().split("\\s+");
-        
+
         if (terms.length == 1) {
             // Fuzzy query for single term
             BooleanQuery.Builder builder = new BooleanQuery.Builder();
             for (String column : columns) {
-                FuzzyQuery fuzzyQuery = new FuzzyQuery(new Term(column, terms[0]), maxEdits);
-                builder.add(fuzzyQuery, BooleanClause.Occur.SHOULD);
+                builder.add(newFuzzyQuery(engine, column, terms[0], maxEdits), BooleanClause.Occur.SHOULD);
             }
             return builder.build();
         } else {
             // Combined query for multiple terms
             BooleanQuery.Builder mainBuilder = new BooleanQuery.Builder();
-            
+
             for (String term : terms) {
                 BooleanQuery.Builder termBuilder = new BooleanQuery.Builder();
                 for (String column : columns) {
                     // Each term can match in any field
-                    FuzzyQuery fuzzyQuery = new FuzzyQuery(new Term(column, term), maxEdits);
-                    termBuilder.add(fuzzyQuery, BooleanClause.Occur.SHOULD);
+                    termBuilder.add(newFuzzyQuery(engine, column, term, maxEdits), BooleanClause.Occur.SHOULD);
                 }
                 // All terms must match
                 mainBuilder.add(termBuilder.build(), BooleanClause.Occur.MUST);
@@ -297,41 +592,54 @@ public class LuceneHelper {
         }
     }
 
+    /**
+     * Build a bounded fuzzy query of one term
+     * @param engine Index engine
+     * @param column Search field
+     * @param term Query term
+     * @param maxEdits Maximum edit distance requested
+     * @return
+     */
+    private FuzzyQuery newFuzzyQuery(LuceneIndexEngine engine, String column, String term, int maxEdits) {
+        // Indexed terms are lower case
+        String text = term.toLowerCase();
+
+        // Edit distance by term length: up to 2 chars exact, up to 5 chars one edit, longer two edits.
+        // Chinese words are short but every character carries a word's worth of meaning, they keep the requested distance
+        int edits = maxEdits;
+        if (!engine.getMultilingualAnalyzer().containsChinese(text)) {
+            int length = text.codePointCount(0, text.length());
+            edits = Math.min(maxEdits, length <= 2 ? 0 : length <= 5 ? 1 : 2);
+        }
+
+        return new FuzzyQuery(new Term(column, text), edits, properties.getFuzzyPrefixLength(),
+                properties.getFuzzyMaxExpansions(), true);
+    }
+
     /**
      * Build wildcard query
+     * Terms without explicit wildcards are "contains" searches, which are rewritten into term lookups
+     * against the n-gram sub-field of each column instead of a leading-wildcard scan
+     * @param engine Index engine
      * @param word Query keyword
      * @param columns Search fields
      * @return
+     * @throws IOException
      */
-    private Query buildWildcardQuery(String word, String[] columns) {
+    private Query buildWildcardQuery(LuceneIndexEngine engine, String word, String[] columns) throws IOException {
         // Split query terms
         String[] terms = word.trim().split("\\s+");
         
         if (terms.length == 1) {
             // Wildcard query for single term
-            BooleanQuery.Builder builder = new BooleanQuery.Builder();
-            String wildcardTerm = preprocessWildcardTerm(terms[0]);
-            
-            for (String column : columns) {
-                WildcardQuery wildcardQuery = new WildcardQuery(new Term(column, wildcardTerm));
-                builder.add(wildcardQuery, BooleanClause.Occur.SHOULD);
-            }
-            return builder.build();
+            return buildWildcardTermQuery(engine, terms[0], columns);
         } else {
             // Combined wildcard query for multiple terms
             BooleanQuery.Builder mainBuilder = new BooleanQuery.Builder();
             
             for (String term : terms) {
-                BooleanQuery.Builder termBuilder = new BooleanQuery.Builder();
-                String wildcardTerm = preprocessWildcardTerm(term);
-                
-                for (String column : columns) {
-                    // Each term can match in any field
-                    WildcardQuery wildcardQuery = new WildcardQuery(new Term(column, wildcardTerm));
-                    termBuilder.add(wildcardQuery, BooleanClause.Occur.SHOULD);
-                }
                 // All terms must match
-                mainBuilder.add(termBuilder.build(), BooleanClause.Occur.MUST);
+                mainBuilder.add(buildWildcardTermQuery(engine, term, columns), BooleanClause.Occur.MUST);
             }
             
             return mainBuilder.build();
@@ -339,111 +647,63 @@ public class LuceneHelper {
     }
 
     /**
-     * Preprocess wildcard query term
-     * @param term Original query term
-     * @return Processed wildcard query term
-     */
-    private String preprocessWildcardTerm(String term) {
-        // If user didn't input wildcards, automatically add prefix and suffix wildcards
-        if (!term.contains("*") && !term.contains("?")) {
-            return "*" + term.toLowerCase() + "*";
-        }
-        
-        // If wildcards are already included, return directly (convert to lowercase to improve match rate)
-        return term.toLowerCase();
-    }
-
-    /**
-     * Add document
-     * @param index Index name
-     * @param document New document
-     * @return Number of documents affected
+     * Build wildcard query of a single term, the term can match in any field
+     * @param engine Index engine
+     * @param term Query term
+     * @param columns Search fields
+     * @return
+     * @throws IOException
      */
-    public long addDocument(String index, Document document) {
-        try {
-            String indexDir = properties.getIndexDir() + File.separator + index;
+    private Query buildWildcardTermQuery(LuceneIndexEngine engine, String term, String[] columns) throws IOException {
+        boolean explicitWildcard = term.contains("*") || term.contains("?");
 
-            // Open index storage directory
-            Directory dir = FSDirectory.open(Paths.get(indexDir));
-
-            // Configure IndexWriter
-            Analyzer analyzer = new MultilingualAnalyzer();
-            IndexWriterConfig config = new IndexWriterConfig(analyzer);
-            IndexWriter writer = new IndexWriter(dir, config);
-
-            // Add document
-            long count = writer.addDocument(document);
-
-            writer.commit();
-            writer.close();
-
-            return count;
-        } catch (Exception e) {
-            log.error("Failed to add Lucene document: ", e);
-            return 0;
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (String column : columns) {
+            Query query;
+            if (!explicitWildcard && engine.hasNGramField(column)) {
+                // Substring lookup on the n-gram sub-field
+                query = ContainsQueryBuilder.build(engine.getNGramQueryAnalyzer(), NGramAnalyzer.fieldOf(column), term);
+            } else {
+                query = new WildcardQuery(new Term(column, preprocessWildcardTerm(term)));
+            }
+            builder.add(query, BooleanClause.Occur.SHOULD);
         }
+        return builder.build();
     }
 
     /**
-     * Delete document
-     * @param index Index name
-     * @param condition Delete condition
-     * @return Number of documents affected
+     * Build "contains" query over the n-gram sub-fields of the columns
+     * @param engine Index engine
+     * @param text Query text
+     * @param columns Search fields
+     * @return null if none of the columns has an n-gram sub-field
+     * @throws IOException
      */
-    public long deleteDocument(String index, Term condition) {
-        try {
-            String indexDir = properties.getIndexDir() + File.separator + index;
-
-            // Open index directory
-            Directory directory = FSDirectory.open(Paths.get(indexDir));
-
-            // Configure IndexWriter
-            IndexWriterConfig config = new IndexWriterConfig(new MultilingualAnalyzer());
-            IndexWriter writer = new IndexWriter(directory, config);
-
-            // Delete documents
-            long count = writer.deleteDocuments(condition);
-
-            writer.commit();
-            writer.close();
-
-            return count;
-        } catch (Exception e) {
-            log.error("Error deleting Lucene document: ", e);
-            return 0;
+    private Query buildContainsQuery(LuceneIndexEngine engine, String text, String[] columns) throws IOException {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        int clauses = 0;
+        for (String column : columns) {
+            if (engine.hasNGramField(column)) {
+                builder.add(ContainsQueryBuilder.build(engine.getNGramQueryAnalyzer(), NGramAnalyzer.fieldOf(column), text),
+                        BooleanClause.Occur.SHOULD);
+                clauses++;
+            }
         }
+        return clauses == 0 ? null : builder.build();
     }
 
     /**
-     * Update document
-     * @param index Index name
-     * @param document Document
-     * @param condition Condition
-     * @return Number of documents affected
+     * Preprocess wildcard query term
+     * @param term Original query term
+     * @return Processed wildcard query term
      */
-    public long updateDocument(String index, Document document, Term condition) {
-        try {
-            String indexDir = properties.getIndexDir() + File.separator + index;
-
-            // Open index directory
-            Directory directory = FSDirectory.open(Paths.get(indexDir));
-
-            // Configure IndexWriter
-            MultilingualAnalyzer analyzer = new MultilingualAnalyzer();
-            IndexWriterConfig config = new IndexWriterConfig(analyzer);
-            IndexWriter writer = new IndexWriter(directory, config);
-
-            // Update document
-            long count = writer.updateDocument(condition, document);
-
-            // Commit changes
-            writer.commit();
-            writer.close();
-
-            return count;
-        } catch (Exception e) {
-            log.error("Error updating Lucene document: ", e);
-            return 0;
+    private String preprocessWildcardTerm(String term) {
+        // If user didn't input wildcards, automatically add prefix and suffix wildcards
+        if (!term.contains("*") && !term.contains("?")) {
+            return "*" + term.toLowerCase() + "*";
         }
+        
+        // If wildcards are already included, return directly (convert to lowercase to improve match rate)
+        return term.toLowerCase();
     }
 }
\ No newline at end of file
@@ -1,14 +1,15 @@
 package com.luqi.weblog.search.analyzer;
 
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
 import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.cn.smart.HMMChineseTokenizer;
 import org.apache.lucene.analysis.cn.smart.SmartChineseAnalyzer;
 import org.apache.lucene.analysis.core.LowerCaseFilter;
 import org.apache.lucene.analysis.core.StopFilter;
 import org.apache.lucene.analysis.en.EnglishAnalyzer;
 import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
-import org.apache.lucene.analysis.standard.StandardTokenizer;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -23,6 +24,17 @@ public class MultilingualAnalyzer extends Analyzer {
     private final SmartChineseAnalyzer chineseAnalyzer;
     private final StandardAnalyzer englishAnalyzer;
     private final Pattern chinesePattern = Pattern.compile("[\\u4e00-\\u9fa5]");
+
+    /**
+     * 停用词：SmartChinese 默认停用词（标点符号）+ 英文停用词
+     */
+    private static final CharArraySet STOP_WORDS_SET;
+
+    static {
+        CharArraySet stopWords = new CharArraySet(SmartChineseAnalyzer.getDefaultStopSet(), false);
+        stopWords.addAll(EnglishAnalyzer.ENGLISH_STOP_WORDS_SET);
+        STOP_WORDS_SET = CharArraySet.unmodifiableSet(stopWords);
+    }
     
     public MultilingualAnalyzer() {
         this.chineseAnalyzer = new SmartChineseAnalyzer();
@@ -31,12 +43,12 @@ public class MultilingualAnalyzer extends Analyzer {
     
     @Override
     protected TokenStreamComponents createComponents(String fieldName) {
-        // 使用标准分词器作为基础
-        StandardTokenizer tokenizer = new StandardTokenizer();
+        // 使用 SmartChinese 的 HMM 分词器作为基础，中文按词切分，英文按单词切分
+        HMMChineseTokenizer tokenizer = new HMMChineseTokenizer();
         
-        // 添加小写过滤器和使用英文分析器的停用词
+        // 添加小写过滤器，并过滤中文标点和英文停用词
         TokenStream tokenStream = new LowerCaseFilter(tokenizer);
-        tokenStream = new StopFilter(tokenStream, EnglishAnalyzer.ENGLISH_STOP_WORDS_SET);
+        tokenStream = new StopFilter(tokenStream, STOP_WORDS_SET);
         
         return new TokenStreamComponents(tokenizer, tokenStream);
     }
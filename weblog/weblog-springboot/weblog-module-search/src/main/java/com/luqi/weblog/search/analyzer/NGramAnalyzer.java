@@ -0,0 +1,68 @@
+package com.luqi.weblog.search.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.cjk.CJKBigramFilter;
+import org.apache.lucene.analysis.cjk.CJKWidthFilter;
+import org.apache.lucene.analysis.core.LowerCaseFilter;
+import org.apache.lucene.analysis.ngram.NGramTokenFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+
+/**
+ * n-gram 分析器，用于 "包含" 子字段
+ * 英文等词按 2~8 字符切分 n-gram，中日韩文字按二元组 (bigram) 切分，
+ * 子串查询因此可以改写为对该字段的词项查找，无需前导通配符扫描整个词典
+ */
+public class NGramAnalyzer extends Analyzer {
+
+    /**
+     * n-gram 子字段名后缀，如 title -> title_ngram
+     */
+    public static final String FIELD_SUFFIX = "_ngram";
+
+    /**
+     * 最小 gram 长度
+     */
+    public static final int MIN_GRAM = 2;
+
+    /**
+     * 最大 gram 长度
+     */
+    public static final int MAX_GRAM = 8;
+
+    /**
+     * 是否展开 n-gram（索引时为 true；查询时为 false，仅输出基础词和 CJK 二元组）
+     */
+    private final boolean expandGrams;
+
+    public NGramAnalyzer(boolean expandGrams) {
+        this.expandGrams = expandGrams;
+    }
+
+    /**
+     * 获取字段对应的 n-gram 子字段名
+     * @param column 字段名
+     * @return
+     */
+    public static String fieldOf(String column) {
+        return column + FIELD_SUFFIX;
+    }
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        StandardTokenizer tokenizer = new StandardTokenizer();
+
+        // 全角/半角归一化 + 小写
+        TokenStream tokenStream = new CJKWidthFilter(tokenizer);
+        tokenStream = new LowerCaseFilter(tokenStream);
+        // 中日韩文字切分为二元组，索引时额外输出单字，使单字查询也能命中
+        tokenStream = new CJKBigramFilter(tokenStream, CJKBigramFilter.HAN | CJKBigramFilter.HIRAGANA
+                | CJKBigramFilter.KATAKANA | CJKBigramFilter.HANGUL, expandGrams);
+        if (expandGrams) {
+            // 保留长度不在 [MIN_GRAM, MAX_GRAM] 范围内的原始词
+            tokenStream = new NGramTokenFilter(tokenStream, MIN_GRAM, MAX_GRAM, true);
+        }
+
+        return new TokenStreamComponents(tokenizer, tokenStream);
+    }
+}
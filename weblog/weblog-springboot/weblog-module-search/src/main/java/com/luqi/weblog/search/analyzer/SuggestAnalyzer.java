@@ -0,0 +1,26 @@
+package com.luqi.weblog.search.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.cjk.CJKWidthFilter;
+import org.apache.lucene.analysis.core.KeywordTokenizer;
+import org.apache.lucene.analysis.core.LowerCaseFilter;
+
+/**
+ * 搜索联想分析器
+ * 整个输入作为一个词（不分词），仅做全角/半角归一化和小写，
+ * 联想词典因此按字符前缀匹配，输入任意前缀都能命中
+ */
+public class SuggestAnalyzer extends Analyzer {
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        KeywordTokenizer tokenizer = new KeywordTokenizer();
+
+        // 全角/半角归一化 + 小写
+        TokenStream tokenStream = new CJKWidthFilter(tokenizer);
+        tokenStream = new LowerCaseFilter(tokenStream);
+
+        return new TokenStreamComponents(tokenizer, tokenStream);
+    }
+}
@@ -0,0 +1,226 @@
+package com.luqi.weblog.search.bulk;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.luqi.weblog.common.domain.dos.ArticleWithContentDO;
+import com.luqi.weblog.common.domain.mapper.ArticleMapper;
+import com.luqi.weblog.search.config.LuceneProperties;
+import com.luqi.weblog.search.engine.IndexRebuild;
+import com.luqi.weblog.search.index.ArticleDocumentBuilder;
+import com.luqi.weblog.search.index.ArticleRelationLoader;
+import com.luqi.weblog.search.index.ArticleRelations;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.lucene.document.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: 全量重建文章索引的流水线。
+ * 通过 MyBatis 游标流式读取文章及正文，按固定批次交给工作线程构建文档并写入重建中的新一代索引
+ * （IndexWriter 支持并发写入，分词在各线程中并行进行），线上索引在重建期间照常提供搜索。
+ * 任务队列有界，队列满时读取线程等待，内存中最多只有少量批次的文档。
+ * 读取线程持有流式结果集所在的连接，批次中的其他查询（分类、标签）只在工作线程中执行。
+ **/
+@Component
+@Slf4j
+public class ArticleBulkIndexer {
+
+    /**
+     * 进度日志的输出间隔（毫秒）
+     */
+    private static final long PROGRESS_LOG_INTERVAL_MILLIS = 5000L;
+
+    @Autowired
+    private ArticleMapper articleMapper;
+    @Autowired
+    private LuceneProperties luceneProperties;
+    @Autowired
+    private ArticleRelationLoader articleRelationLoader;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong indexed = new AtomicLong();
+    private volatile long total;
+    private volatile long startTime;
+    private volatile long endTime;
+    private volatile Long maxId;
+    private volatile LocalDateTime maxUpdateTime;
+
+    /**
+     * 将全部文章写入新一代索引，不提交（由调用方连同同步水位线一起提交、校验后切换）
+     * 游标需在事务内遍历，事务只读
+     * @param rebuild 重建中的新一代索引
+     * @return 完成时的进度（包含已读取文章的最大 ID 与更新时间）
+     * @throws IOException
+     */
+    @Transactional(readOnly = true)
+    public BulkIndexProgress reindex(IndexRebuild rebuild) throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Bulk reindex is already running");
+        }
+
+        total = articleMapper.selectCount(Wrappers.emptyWrapper());
+        indexed.set(0);
+        startTime = System.currentTimeMillis();
+        maxId = 0L;
+        maxUpdateTime = null;
+
+        int batchSize = Math.max(1, luceneProperties.getBulkBatchSize());
+        int threads = luceneProperties.getBulkThreads() > 0
+                ? luceneProperties.getBulkThreads() : Runtime.getRuntime().availableProcessors();
+        // 有界队列，队列满时阻塞提交，读取速度超过写入速度时自动反压
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads),
+                new ThreadFactoryBuilder().setNameFormat("LuceneBulkIndex-%d").setDaemon(true).build(),
+                ArticleBulkIndexer::blockUntilQueued);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        log.info("==> 开始全量重建索引，文章数: {}，工作线程: {}，批次大小: {}", total, threads, batchSize);
+        try (Cursor<ArticleWithContentDO> cursor = articleMapper.selectCursorWithContent()) {
+            long lastLogTime = startTime;
+            List<ArticleWithContentDO> batch = new ArrayList<>(batchSize);
+            for (ArticleWithContentDO article : cursor) {
+                if (Objects.nonNull(failure.get())) {
+                    break;
+                }
+                trackWatermark(article);
+                batch.add(article);
+                if (batch.size() < batchSize) {
+                    continue;
+                }
+
+                submit(workers, rebuild, batch, failure);
+                batch = new ArrayList<>(batchSize);
+
+                long now = System.currentTimeMillis();
+                if (now - lastLogTime >= PROGRESS_LOG_INTERVAL_MILLIS) {
+                    logProgress();
+                    lastLogTime = now;
+                }
+            }
+            if (!batch.isEmpty()) {
+                submit(workers, rebuild, batch, failure);
+            }
+        } finally {
+            workers.shutdown();
+            awaitTermination(workers);
+            endTime = System.currentTimeMillis();
+            running.set(false);
+        }
+
+        if (Objects.nonNull(failure.get())) {
+            throw new IOException("Bulk reindex failed", failure.get());
+        }
+
+        BulkIndexProgress progress = progress();
+        log.info("==> 结束全量重建索引，已写入: {}，耗时: {}ms，速率: {} 篇/秒",
+                progress.getIndexed(), progress.getElapsedMillis(), String.format("%.1f", progress.getDocsPerSecond()));
+        return progress;
+    }
+
+    /**
+     * 当前（或最近一次）重建的进度
+     * @return
+     */
+    public BulkIndexProgress progress() {
+        boolean isRunning = running.get();
+        long indexedCount = indexed.get();
+        long elapsedMillis = startTime == 0 ? 0 : (isRunning ? System.currentTimeMillis() : endTime) - startTime;
+        double docsPerSecond = elapsedMillis > 0 ? indexedCount * 1000.0 / elapsedMillis : 0;
+
+        Long etaSeconds = null;
+        if (!isRunning) {
+            etaSeconds = 0L;
+        } else if (docsPerSecond > 0) {
+            etaSeconds = (long) Math.ceil(Math.max(0, total - indexedCount) / docsPerSecond);
+        }
+
+        return BulkIndexProgress.builder()
+                .running(isRunning)
+                .total(total)
+                .indexed(indexedCount)
+                .elapsedMillis(elapsedMillis)
+                .docsPerSecond(docsPerSecond)
+                .etaSeconds(etaSeconds)
+                .maxId(maxId)
+                .maxUpdateTime(maxUpdateTime)
+                .build();
+    }
+
+    /**
+     * 提交一批文章，构建文档并写入索引
+     */
+    private void submit(ThreadPoolExecutor workers, IndexRebuild rebuild,
+                        List<ArticleWithContentDO> batch, AtomicReference<Throwable> failure) {
+        workers.execute(() -> {
+            if (Objects.nonNull(failure.get())) {
+                return;
+            }
+            try {
+                // 分类、标签按批次关联查询
+                ArticleRelations relations = articleRelationLoader.load(batch.stream()
+                        .map(ArticleWithContentDO::getId)
+                        .collect(Collectors.toList()));
+                List<Document> documents = batch.stream()
+                        .map(article -> ArticleDocumentBuilder.build(article, relations, luceneProperties.isLeanIndex()))
+                        .collect(Collectors.toList());
+                rebuild.addDocuments(documents);
+                indexed.addAndGet(documents.size());
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+    }
+
+    private void trackWatermark(ArticleWithContentDO article) {
+        maxId = Math.max(maxId, article.getId());
+        LocalDateTime updateTime = article.getUpdateTime();
+        if (Objects.nonNull(updateTime) && (Objects.isNull(maxUpdateTime) || updateTime.isAfter(maxUpdateTime))) {
+            maxUpdateTime = updateTime;
+        }
+    }
+
+    private void logProgress() {
+        BulkIndexProgress progress = progress();
+        log.info("==> 全量重建索引进度: {}/{}，速率: {} 篇/秒，预计剩余: {}s",
+                progress.getIndexed(), progress.getTotal(),
+                String.format("%.1f", progress.getDocsPerSecond()), progress.getEtaSeconds());
+    }
+
+    /**
+     * 队列满时等待空位，而不是在读取线程中执行
+     */
+    private static void blockUntilQueued(Runnable task, ThreadPoolExecutor executor) {
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting to queue a bulk index batch", e);
+        }
+    }
+
+    private void awaitTermination(ThreadPoolExecutor workers) {
+        try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.luqi.weblog.search.bulk;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: 全量重建索引的进度快照
+ **/
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkIndexProgress {
+    /**
+     * 是否正在重建
+     */
+    private boolean running;
+
+    /**
+     * 待索引的文章总数（开始时统计）
+     */
+    private long total;
+
+    /**
+     * 已写入的文章数
+     */
+    private long indexed;
+
+    /**
+     * 已耗时（毫秒）
+     */
+    private long elapsedMillis;
+
+    /**
+     * 写入速率（文章数/秒）
+     */
+    private double docsPerSecond;
+
+    /**
+     * 预计剩余时间（秒），速率未知时为空
+     */
+    private Long etaSeconds;
+
+    /**
+     * 已读取文章的最大 ID，作为同步水位线
+     */
+    private Long maxId;
+
+    /**
+     * 已读取文章的最大更新时间，作为同步水位线
+     */
+    private LocalDateTime maxUpdateTime;
+}
@@ -0,0 +1,88 @@
+package com.luqi.weblog.search.cache;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Decides which non-scoring filter clauses get their per-segment doc id sets cached.
+ * Term filters on the drill-down fields (category, tags) are shared by many searches and are cached on first use,
+ * including plain term queries, which the default policy never caches. Every other filter, such as a date range on a point field, is cached once it is used again,
+ * as the default usage tracking policy does
+ **/
+public class FilterCachingPolicy implements QueryCachingPolicy {
+
+    private final Set<String> termFilterFields;
+
+    private final UsageTrackingQueryCachingPolicy usageTracking = new UsageTrackingQueryCachingPolicy();
+
+    public FilterCachingPolicy(String... termFilterFields) {
+        this.termFilterFields = new HashSet<>(Arrays.asList(termFilterFields));
+    }
+
+    @Override
+    public void onUse(Query query) {
+        usageTracking.onUse(query);
+    }
+
+    @Override
+    public boolean shouldCache(Query query) throws IOException {
+        return isTermFilter(query) || usageTracking.shouldCache(query);
+    }
+
+    /**
+     * Whether the query only matches terms of the term filter fields.
+     * A single-value filter reaches the policy as a plain term query (boolean queries unwrap constant-score
+     * filter clauses), a multi-value one as a disjunction whose single-term sets are cached as well and
+     * serve the other filters on those values
+     * @param query
+     * @return
+     */
+    private boolean isTermFilter(Query query) {
+        TermFilterVisitor visitor = new TermFilterVisitor();
+        query.visit(visitor);
+        return visitor.terms > 0 && !visitor.other;
+    }
+
+    private final class TermFilterVisitor extends QueryVisitor {
+
+        private int terms;
+        private boolean other;
+
+        @Override
+        public void consumeTerms(Query query, Term... queryTerms) {
+            for (Term term : queryTerms) {
+                if (termFilterFields.contains(term.field())) {
+                    terms++;
+                } else {
+                    other = true;
+                }
+            }
+        }
+
+        @Override
+        public void visitLeaf(Query query) {
+            // Leaves without terms (points, doc values, match all...)
+            other = true;
+        }
+
+        @Override
+        public QueryVisitor getSubVisitor(BooleanClause.Occur occur, Query parent) {
+            // A negated term does not make a plain term filter
+            if (occur == BooleanClause.Occur.MUST_NOT) {
+                other = true;
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.luqi.weblog.search.cache;
+
+import com.luqi.weblog.search.model.SearchRequest;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.apache.lucene.index.IndexReader;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Search result cache key, the normalized request plus the reader it was computed on
+ **/
+@Data
+@AllArgsConstructor
+public class SearchCacheKey {
+    /**
+     * Normalized search request (query, mode, page and fields)
+     */
+    private SearchRequest request;
+    /**
+     * Identity of the index reader the result was computed on, unique across reopens and index swaps
+     * (reader versions of two index generations may collide)
+     */
+    private IndexReader.CacheKey reader;
+}
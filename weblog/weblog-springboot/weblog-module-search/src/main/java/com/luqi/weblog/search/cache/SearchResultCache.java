@@ -0,0 +1,139 @@
+package com.luqi.weblog.search.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.luqi.weblog.search.config.LuceneProperties;
+import com.luqi.weblog.search.engine.LuceneIndexEngine;
+import com.luqi.weblog.search.model.FacetCount;
+import com.luqi.weblog.search.model.SearchResult;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.search.ReferenceManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Bounded, size-aware cache of search results.
+ * Entries are keyed by the reader generation, so a refreshed index never serves stale results,
+ * entries of older generations are dropped as soon as the searcher is refreshed.
+ **/
+@Component
+@Slf4j
+public class SearchResultCache {
+
+    /**
+     * Rough per-object overhead used when estimating entry size (bytes)
+     */
+    private static final int OBJECT_OVERHEAD = 64;
+
+    private final boolean enabled;
+
+    private final Cache<SearchCacheKey, SearchResult> cache;
+
+    @Autowired
+    public SearchResultCache(LuceneProperties properties, List<LuceneIndexEngine> engines) {
+        this.enabled = properties.isResultCacheEnabled();
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(properties.getResultCacheMaxBytes())
+                .weigher((SearchCacheKey key, SearchResult value) -> weigh(value))
+                .recordStats()
+                .build();
+
+        // Drop entries of an index once its searcher has been refreshed with new changes
+        engines.forEach(engine -> engine.addRefreshListener(new ReferenceManager.RefreshListener() {
+            @Override
+            public void beforeRefresh() {
+            }
+
+            @Override
+            public void afterRefresh(boolean didRefresh) {
+                if (didRefresh) {
+                    invalidate(engine.getName());
+                }
+            }
+        }));
+    }
+
+    /**
+     * Get cached result
+     * @param key
+     * @return null if absent or caching is disabled
+     */
+    public SearchResult get(SearchCacheKey key) {
+        return enabled ? cache.getIfPresent(key) : null;
+    }
+
+    /**
+     * Cache a result
+     * @param key
+     * @param result
+     */
+    public void put(SearchCacheKey key, SearchResult result) {
+        if (enabled) {
+            cache.put(key, result);
+        }
+    }
+
+    /**
+     * Invalidate all entries of an index
+     * @param index Index name
+     */
+    public void invalidate(String index) {
+        cache.asMap().keySet().removeIf(key -> index.equals(key.getRequest().getIndex()));
+    }
+
+    /**
+     * Hit / miss / eviction counters
+     * @return
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Number of cached entries
+     * @return
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Estimate the heap size of a result from its stored field values
+     * @param result
+     * @return
+     */
+    private static int weigh(SearchResult result) {
+        long bytes = OBJECT_OVERHEAD;
+        for (Document document : result.getDocuments()) {
+            bytes += OBJECT_OVERHEAD;
+            for (IndexableField field : document.getFields()) {
+                String value = field.stringValue();
+                bytes += OBJECT_OVERHEAD + (value == null ? 0 : 2L * value.length());
+            }
+        }
+        if (result.getIds() != null) {
+            bytes += (long) OBJECT_OVERHEAD * result.getIds().size();
+        }
+        for (Map<String, String> highlights : result.getHighlights()) {
+            bytes += OBJECT_OVERHEAD;
+            for (String value : highlights.values()) {
+                bytes += OBJECT_OVERHEAD + 2L * value.length();
+            }
+        }
+        for (List<FacetCount> counts : result.getFacets().values()) {
+            bytes += OBJECT_OVERHEAD;
+            for (FacetCount count : counts) {
+                bytes += OBJECT_OVERHEAD + 2L * count.getLabel().length();
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+}
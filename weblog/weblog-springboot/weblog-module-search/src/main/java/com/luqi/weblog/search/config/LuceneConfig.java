@@ -0,0 +1,135 @@
+package com.luqi.weblog.search.config;
+
+import com.baomidou.mybatisplus.core.toolkit.StringUtils;
+import com.luqi.weblog.search.cache.FilterCachingPolicy;
+import com.luqi.weblog.search.engine.IndexDirectoryFactory;
+import com.luqi.weblog.search.engine.IndexStorage;
+import com.luqi.weblog.search.engine.LuceneIndexEngine;
+import com.luqi.weblog.search.engine.SearchExecutor;
+import com.luqi.weblog.search.index.ArticleIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Lucene 索引引擎配置，每个索引对应一个长生命周期的引擎 Bean
+ **/
+@Configuration
+@Slf4j
+public class LuceneConfig {
+
+    /**
+     * 过滤条件的匹配文档数超过关键词匹配数的该倍数时，不为该次搜索构建缓存（与 Lucene 默认值一致）
+     */
+    private static final float FILTER_CACHE_SKIP_FACTOR = 250f;
+
+    @Autowired
+    private LuceneProperties luceneProperties;
+
+    /**
+     * 文章索引引擎
+     * @param searchExecutor 搜索线程池，未启用并行搜索时不存在
+     * @return
+     */
+    @Bean(initMethod = "open", destroyMethod = "close")
+    public LuceneIndexEngine articleIndexEngine(ObjectProvider<SearchExecutor> searchExecutor) {
+        IndexDirectoryFactory directoryFactory = indexDirectoryFactory();
+
+        // 磁盘存储时，若配置文件中未配置索引存放目录，无法启动索引引擎
+        if (directoryFactory.isPersistent() && StringUtils.isBlank(luceneProperties.getIndexDir())) {
+            log.error("==> 未指定 Lucene 索引存放位置，需在 application.yml 文件中添加路径配置...");
+            throw new IllegalStateException("lucene.indexDir is not configured");
+        }
+
+        // 文章索引存放目录， 如 /app/weblog/lucene-index/article
+        Path indexPath = directoryFactory.isPersistent()
+                ? Paths.get(luceneProperties.getIndexDir(), ArticleIndex.NAME) : null;
+        LuceneIndexEngine engine = new LuceneIndexEngine(ArticleIndex.NAME, indexPath, directoryFactory,
+                luceneProperties.getRefreshIntervalMillis(),
+                ArticleIndex.NGRAM_COLUMNS);
+        engine.setQueryCache(filterQueryCache(), newFilterCachingPolicy());
+        // 未启用并行搜索时为 null，搜索只在请求线程中进行
+        SearchExecutor executor = searchExecutor.getIfAvailable();
+        engine.setSearchExecutor(executor);
+        if (executor != null) {
+            log.info("==> 已启用并行搜索，搜索线程数: {}", executor.getThreads());
+        }
+        return engine;
+    }
+
+    /**
+     * 搜索线程池：搜索器将索引段分片并行收集，搜索不再独占请求线程遍历全部段。
+     * 仅在启用并行搜索（lucene.parallel-search，默认启用）时创建
+     * @return
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "lucene", name = "parallel-search", havingValue = "true", matchIfMissing = true)
+    public SearchExecutor searchExecutor() {
+        return newSearchExecutor(luceneProperties);
+    }
+
+    /**
+     * 按配置创建搜索线程池（基准测试等不经过 Spring 创建引擎时同样使用）
+     * @param properties
+     * @return
+     */
+    public static SearchExecutor newSearchExecutor(LuceneProperties properties) {
+        int threads = properties.getSearchThreads() > 0
+                ? properties.getSearchThreads() : Runtime.getRuntime().availableProcessors();
+        return new SearchExecutor(threads, properties.getSearchQueueSize(),
+                properties.getSearchSliceMaxDocs(), properties.getSearchSliceMaxSegments());
+    }
+
+    /**
+     * 过滤缓存：过滤子句不参与打分，其在每个段上的匹配文档集合按段缓存，段未变化时刷新后仍可命中
+     * @return
+     */
+    @Bean
+    public LRUQueryCache filterQueryCache() {
+        return newFilterQueryCache(luceneProperties);
+    }
+
+    /**
+     * 按配置创建过滤缓存（基准测试等不经过 Spring 创建引擎时同样使用）
+     * @param properties
+     * @return
+     */
+    public static LRUQueryCache newFilterQueryCache(LuceneProperties properties) {
+        int minSegmentDocs = properties.getFilterCacheMinSegmentDocs();
+        return new LRUQueryCache(properties.getFilterCacheSize(),
+                (long) (properties.getFilterCacheMaxMb() * 1024 * 1024),
+                context -> context.reader().maxDoc() >= minSegmentDocs,
+                FILTER_CACHE_SKIP_FACTOR);
+    }
+
+    /**
+     * 文章索引的过滤缓存策略：分类、标签过滤首次使用即缓存，其余过滤条件（如发布时间范围）再次使用时缓存
+     * @return
+     */
+    public static QueryCachingPolicy newFilterCachingPolicy() {
+        return new FilterCachingPolicy(ArticleIndex.COLUMN_CATEGORY_ID, ArticleIndex.COLUMN_TAG_ID);
+    }
+
+    /**
+     * 按配置的存储方式打开索引目录
+     * @return
+     */
+    private IndexDirectoryFactory indexDirectoryFactory() {
+        IndexStorage storage = luceneProperties.getStorage() == null ? IndexStorage.MMAP : luceneProperties.getStorage();
+        return new IndexDirectoryFactory(storage,
+                luceneProperties.isMmapPreload(),
+                luceneProperties.isNrtCachingEnabled(),
+                luceneProperties.getNrtCachingMaxMergeSizeMb(),
+                luceneProperties.getNrtCachingMaxCachedMb());
+    }
+}
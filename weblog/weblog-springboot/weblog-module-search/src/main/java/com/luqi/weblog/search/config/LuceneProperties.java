@@ -1,5 +1,6 @@
 package com.luqi.weblog.search.config;
 
+import com.luqi.weblog.search.engine.IndexStorage;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
@@ -9,7 +10,236 @@ import org.springframework.stereotype.Component;
 @Data
 public class LuceneProperties {
     /**
-     * 索引存放的文件夹
+     * 索引存放的文件夹（内存存储时无需配置）
      */
     private String indexDir;
+
+    /**
+     * 索引存储方式：mmap（内存映射，适合较大的索引）、nio（FileChannel 读取）、memory（仅在堆内存中，启动时从数据库重建，适合小型博客）
+     */
+    private IndexStorage storage = IndexStorage.MMAP;
+
+    /**
+     * mmap 存储时，打开索引文件后是否立即预加载到物理内存，避免首次查询时缺页
+     */
+    private boolean mmapPreload = false;
+
+    /**
+     * 磁盘存储时是否使用 NRTCachingDirectory，将新写入的小段缓存在内存中，减少单篇文章变更带来的小文件读写
+     */
+    private boolean nrtCachingEnabled = true;
+
+    /**
+     * NRTCachingDirectory 缓存的单个合并段的最大大小（MB），更大的段直接写入磁盘
+     */
+    private double nrtCachingMaxMergeSizeMb = 5;
+
+    /**
+     * NRTCachingDirectory 缓存的总大小上限（MB）
+     */
+    private double nrtCachingMaxCachedMb = 60;
+
+    /**
+     * 后台刷新搜索器的最大间隔（毫秒），写入后最迟在该时间内可被搜索到
+     */
+    private long refreshIntervalMillis = 1000L;
+
+    /**
+     * 精确统计命中总数的阈值，超过后总数只作为下限返回，避免为统计总数遍历全部命中
+     */
+    private int totalHitsThreshold = 1000;
+
+    /**
+     * 允许按页码（偏移量）翻页的最大页数，更深的页需携带游标翻页
+     */
+    private int maxOffsetPage = 10;
+
+    /**
+     * 是否开启搜索结果缓存
+     */
+    private boolean resultCacheEnabled = true;
+
+    /**
+     * 搜索结果缓存的最大容量（按结果大小估算，单位字节）
+     */
+    private long resultCacheMaxBytes = 32L * 1024 * 1024;
+
+    /**
+     * 模糊搜索不参与编辑的公共前缀长度，前缀越长需要比对的词项越少
+     */
+    private int fuzzyPrefixLength = 1;
+
+    /**
+     * 模糊搜索每个词最多展开的相似词项数
+     */
+    private int fuzzyMaxExpansions = 50;
+
+    /**
+     * 是否开启拼写纠错（"您是不是要找"）
+     */
+    private boolean spellCheckEnabled = true;
+
+    /**
+     * 精确搜索命中数不超过该值时才进行拼写纠错
+     */
+    private int spellCheckMaxHits = 3;
+
+    /**
+     * 正文高亮返回的最佳片段数
+     */
+    private int highlightSnippetPassages = 2;
+
+    /**
+     * 全量重建索引时每批读取并构建的文章数
+     */
+    private int bulkBatchSize = 200;
+
+    /**
+     * 全量重建索引的工作线程数，小于等于 0 时取 CPU 核数
+     */
+    private int bulkThreads = 0;
+
+    /**
+     * 全量重建索引期间 IndexWriter 的内存缓冲大小（MB），缓冲越大刷盘的段越少
+     */
+    private double bulkRamBufferSizeMb = 256;
+
+    /**
+     * 文章事件写入队列的合并等待时间（毫秒），等待期间同一文章的多次变更只写入最后一次
+     */
+    private long queueFlushDelayMillis = 50L;
+
+    /**
+     * 写入队列两次提交（fsync）之间的最长间隔（毫秒），提交前的变更通过近实时刷新即可被搜索到
+     */
+    private long queueCommitIntervalMillis = 5000L;
+
+    /**
+     * 写入队列未提交的变更数达到该值时立即提交
+     */
+    private int queueCommitMaxOps = 500;
+
+    /**
+     * 阅读量写入索引的合并等待时间（毫秒），等待期间的阅读事件合并为一次批量查询与列存更新。
+     * 每次写入都会使索引在下一次后台刷新时重新打开搜索器并清空搜索结果缓存，
+     * 因此间隔不宜过短；按阅读量排序、加权的结果最多滞后这段时间
+     */
+    private long readNumFlushDelayMillis = 300000L;
+
+    /**
+     * 按热度排序时阅读量的权重：相关度得分乘以 1 + 权重 * ln(1 + 阅读量)
+     */
+    private float popularityBoostWeight = 0.1f;
+
+    /**
+     * 文章详情页展示的相关文章数
+     */
+    private int relatedSize = 5;
+
+    /**
+     * 相关文章缓存的最大文章数
+     */
+    private long relatedCacheMaxSize = 10000;
+
+    /**
+     * 慢查询阈值（毫秒），超过后记录改写后的查询及其展开的词项数
+     */
+    private long slowQueryMillis = 500L;
+
+    /**
+     * 保留的最近慢查询条数
+     */
+    private int slowQueryLogSize = 100;
+
+    /**
+     * 热门查询、零结果查询统计各自跟踪的查询数，只保留出现最频繁的查询
+     */
+    private int topQueriesCapacity = 200;
+
+    /**
+     * 模糊、通配符搜索允许的最多关键词数
+     */
+    private int queryMaxTerms = 8;
+
+    /**
+     * 单次搜索的查询允许的最多子句（词项查询、模糊/通配符查询）数
+     */
+    private int queryMaxClauses = 256;
+
+    /**
+     * 单次搜索的模糊、通配符查询合计允许展开的最多索引词项数，执行前预估，超出则拒绝搜索
+     */
+    private long queryMaxExpansions = 2048;
+
+    /**
+     * 通配符模式至少包含的非通配符字符数，避免 *a* 这类几乎匹配全部词项的模式
+     */
+    private int wildcardMinLiteralChars = 2;
+
+    /**
+     * 单次搜索收集命中的时间上限（毫秒），超时返回已收集的部分结果，小于等于 0 表示不限制
+     */
+    private long searchTimeoutMillis = 1000L;
+
+    /**
+     * 并行搜索：搜索器将索引段分片，由专用搜索线程池并行收集（请求线程收集最后一个分片），关闭时每次搜索在请求线程上依次遍历全部段
+     */
+    private boolean parallelSearch = true;
+
+    /**
+     * 搜索线程池的线程数，小于等于 0 时取 CPU 核数
+     */
+    private int searchThreads = 0;
+
+    /**
+     * 搜索线程池的等待队列长度，线程与队列都已占满时分片由请求线程自行收集，不会无限排队
+     */
+    private int searchQueueSize = 64;
+
+    /**
+     * 每个分片最多包含的文档数，超过该值的段单独作为一个分片（段内不再拆分）
+     */
+    private int searchSliceMaxDocs = 50000;
+
+    /**
+     * 每个分片最多包含的段数
+     */
+    private int searchSliceMaxSegments = 5;
+
+    /**
+     * 精简索引：索引只存储文章 ID，标题、摘要原文写入列存仅供高亮，不保存封面、发布时间文本与正文原文（无正文摘要片段）；
+     * 搜索命中、相关文章由文章摘要缓存批量组装。切换后启动时全量重建索引
+     */
+    private boolean leanIndex = false;
+
+    /**
+     * 文章摘要缓存（标题、封面、摘要、发布时间）的最大文章数
+     */
+    private long summaryCacheMaxSize = 10000;
+
+    /**
+     * 新搜索器发布前（启动、全量重建切换）重放的热门查询数，小于等于 0 时只预热词典与列存。
+     * 近实时刷新只预热新段的词典与列存，不重放查询
+     */
+    private int warmupQueries = 20;
+
+    /**
+     * 启动、切换时重放查询的时间上限（毫秒），超出后跳过剩余查询
+     */
+    private long warmupMaxMillis = 500L;
+
+    /**
+     * 过滤缓存（分类、标签、发布时间等过滤条件在每个段上的匹配文档集合）最多缓存的过滤条件数
+     */
+    private int filterCacheSize = 256;
+
+    /**
+     * 过滤缓存的内存上限（MB）
+     */
+    private double filterCacheMaxMb = 16;
+
+    /**
+     * 文档数少于该值的段不缓存过滤结果（近实时刷新产生的小段很快会被合并）
+     */
+    private int filterCacheMinSegmentDocs = 100;
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.luqi.weblog.search.engine;
+
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.NRTCachingDirectory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Opens the directory of each index generation according to the configured storage mode.
+ * On-disk directories can be wrapped in an NRTCachingDirectory, which keeps small newly flushed segments
+ * (such as the ones written by a single article change) in memory until they are merged or committed
+ **/
+public class IndexDirectoryFactory {
+
+    private final IndexStorage storage;
+
+    /**
+     * Load mapped files into physical memory when they are opened (MMAP only)
+     */
+    private final boolean preload;
+
+    /**
+     * Wrap on-disk directories in an NRTCachingDirectory
+     */
+    private final boolean nrtCaching;
+
+    private final double nrtCachingMaxMergeSizeMB;
+
+    private final double nrtCachingMaxCachedMB;
+
+    public IndexDirectoryFactory(IndexStorage storage, boolean preload,
+                                 boolean nrtCaching, double nrtCachingMaxMergeSizeMB, double nrtCachingMaxCachedMB) {
+        this.storage = storage;
+        this.preload = preload;
+        this.nrtCaching = nrtCaching;
+        this.nrtCachingMaxMergeSizeMB = nrtCachingMaxMergeSizeMB;
+        this.nrtCachingMaxCachedMB = nrtCachingMaxCachedMB;
+    }
+
+    /**
+     * Open the directory of a generation
+     * @param path Generation directory, ignored for in-memory storage
+     * @return
+     * @throws IOException
+     */
+    public Directory open(Path path) throws IOException {
+        Directory directory;
+        switch (storage) {
+            case MEMORY:
+                return new ByteBuffersDirectory();
+            case NIO:
+                directory = new NIOFSDirectory(path);
+                break;
+            case MMAP:
+            default:
+                MMapDirectory mmapDirectory = new MMapDirectory(path);
+                mmapDirectory.setPreload(preload);
+                directory = mmapDirectory;
+                break;
+        }
+        return nrtCaching ? new NRTCachingDirectory(directory, nrtCachingMaxMergeSizeMB, nrtCachingMaxCachedMB) : directory;
+    }
+
+    /**
+     * Whether the index is kept on disk (generation directories and the current file exist)
+     * @return
+     */
+    public boolean isPersistent() {
+        return storage != IndexStorage.MEMORY;
+    }
+
+    public IndexStorage getStorage() {
+        return storage;
+    }
+}
@@ -0,0 +1,117 @@
+package com.luqi.weblog.search.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.IOUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: A full rebuild of an index, written into its own generation directory next to the live one.
+ * Searches keep using the live index until the rebuild is committed, verified and swapped in
+ * through {@link LuceneIndexEngine#swap(IndexRebuild)}; an aborted rebuild leaves the live index untouched.
+ **/
+@Slf4j
+public class IndexRebuild {
+
+    private final LuceneIndexEngine engine;
+    private final long generation;
+    /**
+     * Generation directory, null for in-memory storage
+     */
+    private final Path path;
+    private final Directory directory;
+    private final IndexWriter writer;
+
+    IndexRebuild(LuceneIndexEngine engine, long generation, Path path, Directory directory, IndexWriter writer) {
+        this.engine = engine;
+        this.generation = generation;
+        this.path = path;
+        this.directory = directory;
+        this.writer = writer;
+    }
+
+    /**
+     * Add a block of documents, may be called concurrently
+     * @param documents
+     * @return Sequence number of the operation
+     * @throws IOException
+     */
+    public long addDocuments(Iterable<Document> documents) throws IOException {
+        return writer.addDocuments(documents);
+    }
+
+    /**
+     * Commit the rebuilt index together with its user data (schema version, sync watermark)
+     * @param userData
+     * @throws IOException
+     */
+    public void commit(Map<String, String> userData) throws IOException {
+        writer.setLiveCommitData(new HashMap<>(userData).entrySet());
+        writer.commit();
+    }
+
+    /**
+     * Check the committed index before it is swapped in: it must hold the expected number of documents
+     * and carry the expected user data
+     * @param expectedDocs
+     * @param expectedUserData
+     * @throws IOException
+     */
+    public void verify(long expectedDocs, Map<String, String> expectedUserData) throws IOException {
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            if (reader.numDocs() != expectedDocs) {
+                throw new IllegalStateException(String.format("Rebuilt index generation %d holds %d documents, expected %d",
+                        generation, reader.numDocs(), expectedDocs));
+            }
+            Map<String, String> userData = reader.getIndexCommit().getUserData();
+            expectedUserData.forEach((key, value) -> {
+                if (!Objects.equals(userData.get(key), value)) {
+                    throw new IllegalStateException(String.format("Rebuilt index generation %d has %s=%s, expected %s",
+                            generation, key, userData.get(key), value));
+                }
+            });
+        }
+    }
+
+    /**
+     * Discard the rebuild and delete its directory, then allow the next rebuild of the engine
+     */
+    public void abort() {
+        try {
+            IOUtils.close(writer::rollback, directory);
+            if (path != null) {
+                IOUtils.rm(path);
+            }
+        } catch (IOException e) {
+            log.warn("==> Failed to discard index rebuild, generation: {}", generation, e);
+        } finally {
+            engine.endRebuild();
+        }
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    Directory getDirectory() {
+        return directory;
+    }
+
+    IndexWriter getWriter() {
+        return writer;
+    }
+}
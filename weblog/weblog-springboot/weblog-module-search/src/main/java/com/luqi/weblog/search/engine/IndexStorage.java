@@ -0,0 +1,22 @@
+package com.luqi.weblog.search.engine;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: How the index files are stored and read
+ **/
+public enum IndexStorage {
+    /**
+     * Memory-mapped files (MMapDirectory), reads go through the OS page cache without copying, suited to large indexes
+     */
+    MMAP,
+    /**
+     * Positional reads through FileChannel (NIOFSDirectory), for environments where mmap is unavailable or limited
+     */
+    NIO,
+    /**
+     * Heap only (ByteBuffersDirectory), nothing is written to disk and the index is rebuilt from the database at startup,
+     * suited to small blogs
+     */
+    MEMORY
+}
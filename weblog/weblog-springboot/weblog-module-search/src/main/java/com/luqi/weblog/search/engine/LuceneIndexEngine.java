@@ -0,0 +1,649 @@
+package com.luqi.weblog.search.engine;
+
+import com.luqi.weblog.search.analyzer.MultilingualAnalyzer;
+import com.luqi.weblog.search.analyzer.NGramAnalyzer;
+import com.luqi.weblog.search.facet.FacetSearcherFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.QueryCache;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.IOUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Long-lived engine of a single Lucene index.
+ * Holds one shared IndexWriter and a SearcherManager over its NRT readers,
+ * a background thread keeps the searcher fresh after writes.
+ * Searchers carry the facet state of their reader, rebuilt on each reopen, and are warmed before they are
+ * published (see {@link SearcherWarmer}). With a {@link SearchExecutor} they collect segment slices in parallel.
+ * Each full rebuild is written into a new generation directory ({@code gen-N}) and swapped in atomically,
+ * the {@code current} file names the live generation.
+ * Generation directories are opened through an {@link IndexDirectoryFactory} (mmap, NIO or in-memory storage).
+ **/
+@Slf4j
+public class LuceneIndexEngine implements Closeable {
+
+    /**
+     * Minimum staleness when a caller is waiting for a specific generation (seconds)
+     */
+    private static final double MIN_STALE_SEC = 0.025;
+
+    /**
+     * File naming the live generation directory
+     */
+    private static final String CURRENT_FILE = "current";
+
+    /**
+     * Prefix of the generation directories
+     */
+    private static final String GENERATION_PREFIX = "gen-";
+
+    /**
+     * Index name
+     */
+    private final String name;
+
+    /**
+     * Index directory, unused for in-memory storage
+     */
+    private final Path indexPath;
+
+    /**
+     * Opens the directory of each generation
+     */
+    private final IndexDirectoryFactory directoryFactory;
+
+    /**
+     * Maximum time between two background reopens (milliseconds)
+     */
+    private final long refreshIntervalMillis;
+
+    /**
+     * Fields that get an n-gram "contains" sub-field
+     */
+    private final Set<String> ngramColumns;
+
+    /**
+     * Listeners of the searcher manager, registered again on the new manager after a swap
+     */
+    private final List<ReferenceManager.RefreshListener> refreshListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Index operations hold the read lock, a swap holds the write lock while it replaces the writer and searcher manager
+     */
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    /**
+     * Held from the start of a rebuild until it is swapped in or aborted, only one rebuild runs at a time
+     */
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    /**
+     * Warms each new searcher before it is published, none until one is set
+     */
+    private volatile SearcherWarmer warmer;
+
+    /**
+     * Cache of the filter clauses' per-segment doc id sets and its caching policy, Lucene's defaults until set
+     */
+    private QueryCache queryCache;
+    private QueryCachingPolicy queryCachingPolicy;
+
+    /**
+     * Executor of parallel segment collection, searches run on the calling thread only until set
+     */
+    private SearchExecutor searchExecutor;
+
+    private MultilingualAnalyzer multilingualAnalyzer;
+    private NGramAnalyzer ngramAnalyzer;
+    private NGramAnalyzer ngramQueryAnalyzer;
+    private Analyzer analyzer;
+    private long generation;
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+
+    public LuceneIndexEngine(String name, Path indexPath, IndexDirectoryFactory directoryFactory,
+                             long refreshIntervalMillis, String... ngramColumns) {
+        this.name = name;
+        this.indexPath = indexPath;
+        this.directoryFactory = directoryFactory;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.ngramColumns = new HashSet<>(Arrays.asList(ngramColumns));
+    }
+
+    /**
+     * Open the live generation directory, the writer and the searcher manager
+     * @throws IOException
+     */
+    public synchronized void open() throws IOException {
+        // Multilingual analyzer (supports Chinese and English), n-gram analyzer for the "contains" sub-fields
+        multilingualAnalyzer = new MultilingualAnalyzer();
+        ngramAnalyzer = new NGramAnalyzer(true);
+        ngramQueryAnalyzer = new NGramAnalyzer(false);
+        Map<String, Analyzer> fieldAnalyzers = new HashMap<>();
+        ngramColumns.forEach(column -> fieldAnalyzers.put(NGramAnalyzer.fieldOf(column), ngramAnalyzer));
+        analyzer = new PerFieldAnalyzerWrapper(multilingualAnalyzer, fieldAnalyzers);
+
+        if (directoryFactory.isPersistent()) {
+            Files.createDirectories(indexPath);
+            generation = readCurrentGeneration();
+            deleteStaleGenerations();
+        } else {
+            generation = 1;
+        }
+
+        directory = directoryFactory.open(generationPath(generation));
+        writer = new IndexWriter(directory, newWriterConfig(IndexWriterConfig.OpenMode.CREATE_OR_APPEND,
+                IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB));
+        searcherManager = newSearcherManager(writer);
+        startReopenThread();
+
+        log.info("==> Lucene index engine opened, index: {}, storage: {}, path: {}",
+                name, directoryFactory.getStorage(), generationPath(generation));
+    }
+
+    /**
+     * Register a listener notified before and after each searcher refresh, and after each swap
+     * @param listener
+     */
+    public void addRefreshListener(ReferenceManager.RefreshListener listener) {
+        refreshListeners.add(listener);
+        if (searcherManager != null) {
+            searcherManager.addListener(listener);
+        }
+    }
+
+    /**
+     * Set the filter cache of the searchers, must be called before {@link #open()}
+     * @param queryCache
+     * @param queryCachingPolicy Which filters are cached
+     */
+    public void setQueryCache(QueryCache queryCache, QueryCachingPolicy queryCachingPolicy) {
+        this.queryCache = queryCache;
+        this.queryCachingPolicy = queryCachingPolicy;
+    }
+
+    /**
+     * Set the executor the searchers collect their segment slices on, must be called before {@link #open()}.
+     * The executor is shared, it is not closed with the engine
+     * @param searchExecutor
+     */
+    public void setSearchExecutor(SearchExecutor searchExecutor) {
+        this.searchExecutor = searchExecutor;
+    }
+
+    /**
+     * Set the warmer of the searchers opened from now on (NRT reopens and swaps)
+     * @param warmer
+     */
+    public void setSearcherWarmer(SearcherWarmer warmer) {
+        this.warmer = warmer;
+    }
+
+    /**
+     * Acquire a searcher, must be handed back through {@link #release(IndexSearcher)}
+     * @return
+     * @throws IOException
+     */
+    public IndexSearcher acquire() throws IOException {
+        swapLock.readLock().lock();
+        try {
+            return searcherManager.acquire();
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Release a searcher obtained by {@link #acquire()}, also valid for searchers acquired before a swap
+     * @param searcher
+     * @throws IOException
+     */
+    public void release(IndexSearcher searcher) throws IOException {
+        searcher.getIndexReader().decRef();
+    }
+
+    /**
+     * Add document
+     * @param document
+     * @return Sequence number of the operation
+     * @throws IOException
+     */
+    public long addDocument(Document document) throws IOException {
+        swapLock.readLock().lock();
+        try {
+            return writer.addDocument(document);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Update (delete then add) documents matching the term
+     * @param term
+     * @param document
+     * @return Sequence number of the operation
+     * @throws IOException
+     */
+    public long updateDocument(Term term, Document document) throws IOException {
+        swapLock.readLock().lock();
+        try {
+            return writer.updateDocument(term, document);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Set a numeric DocValues field of the documents matching the term in place, the documents are not re-indexed.
+     * The field must have been indexed as a NumericDocValuesField only
+     * @param term
+     * @param field
+     * @param value
+     * @return Sequence number of the operation
+     * @throws IOException
+     */
+    public long updateNumericDocValue(Term term, String field, long value) throws IOException {
+        swapLock.readLock().lock();
+        try {
+            return writer.updateNumericDocValue(term, field, value);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Delete documents matching the term
+     * @param term
+     * @return Sequence number of the operation
+     * @throws IOException
+     */
+    public long deleteDocuments(Term term) throws IOException {
+        swapLock.readLock().lock();
+        try {
+            return writer.deleteDocuments(term);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Commit pending changes to disk and make them searchable.
+     * The user data of the last commit is carried over
+     * @throws IOException
+     */
+    public void commit() throws IOException {
+        swapLock.readLock().lock();
+        try {
+            writer.commit();
+            searcherManager.maybeRefreshBlocking();
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Make pending changes searchable (NRT reopen) without committing them to disk
+     * @throws IOException
+     */
+    public void refresh() throws IOException {
+        swapLock.readLock().lock();
+        try {
+            searcherManager.maybeRefreshBlocking();
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Commit pending changes together with new user data (replaces the previous user data)
+     * @param userData
+     * @throws IOException
+     */
+    public void commit(Map<String, String> userData) throws IOException {
+        swapLock.readLock().lock();
+        try {
+            writer.setLiveCommitData(new HashMap<>(userData).entrySet());
+            writer.commit();
+            searcherManager.maybeRefreshBlocking();
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * User data of the last commit (or of the pending one set by {@link #commit(Map)}), empty for a new index
+     * @return
+     */
+    public Map<String, String> getCommitUserData() {
+        Map<String, String> userData = new HashMap<>();
+        Iterable<Map.Entry<String, String>> liveCommitData = writer.getLiveCommitData();
+        if (liveCommitData != null) {
+            liveCommitData.forEach(entry -> userData.put(entry.getKey(), entry.getValue()));
+        }
+        return userData;
+    }
+
+    /**
+     * Start a full rebuild into the next generation directory, the live index keeps serving meanwhile
+     * @param ramBufferSizeMB RAM buffer of the rebuild writer, a larger buffer flushes fewer and bigger segments
+     * @return
+     * @throws IOException
+     * @throws IllegalStateException if a rebuild of this index is already running
+     */
+    public IndexRebuild beginRebuild(double ramBufferSizeMB) throws IOException {
+        IndexRebuild rebuild = tryBeginRebuild(ramBufferSizeMB);
+        if (rebuild == null) {
+            throw new IllegalStateException("Rebuild of index " + name + " is already running");
+        }
+        return rebuild;
+    }
+
+    /**
+     * Start a full rebuild into the next generation directory, unless one is already running.
+     * The rebuild holds the engine until it is swapped in or aborted
+     * @param ramBufferSizeMB RAM buffer of the rebuild writer, a larger buffer flushes fewer and bigger segments
+     * @return The rebuild, null if a rebuild of this index is already running
+     * @throws IOException
+     */
+    public synchronized IndexRebuild tryBeginRebuild(double ramBufferSizeMB) throws IOException {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            long rebuildGeneration = generation + 1;
+            Path rebuildPath = generationPath(rebuildGeneration);
+            if (directoryFactory.isPersistent()) {
+                // Leftover of an interrupted rebuild, no other rebuild can be writing into it
+                IOUtils.rm(rebuildPath);
+                Files.createDirectories(rebuildPath);
+            }
+
+            Directory rebuildDirectory = directoryFactory.open(rebuildPath);
+            IndexWriter rebuildWriter = new IndexWriter(rebuildDirectory,
+                    newWriterConfig(IndexWriterConfig.OpenMode.CREATE, ramBufferSizeMB));
+            log.info("==> Started index rebuild, index: {}, path: {}", name, rebuildPath);
+            return new IndexRebuild(this, rebuildGeneration, rebuildPath, rebuildDirectory, rebuildWriter);
+        } catch (IOException | RuntimeException e) {
+            rebuilding.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Whether a rebuild of this index is running
+     * @return
+     */
+    public boolean isRebuilding() {
+        return rebuilding.get();
+    }
+
+    /**
+     * Release the rebuild guard once the rebuild was swapped in or aborted
+     */
+    void endRebuild() {
+        rebuilding.set(false);
+    }
+
+    /**
+     * Atomically switch writes and searches over to a committed and verified rebuild,
+     * then close and delete the previous generation.
+     * Searchers acquired before the swap stay usable until they are released.
+     * Refresh listeners are notified as after a refresh, so caches of the previous generation are dropped
+     * @param rebuild
+     * @throws IOException
+     */
+    public synchronized void swap(IndexRebuild rebuild) throws IOException {
+        try {
+            doSwap(rebuild);
+        } finally {
+            endRebuild();
+        }
+    }
+
+    private void doSwap(IndexRebuild rebuild) throws IOException {
+        rebuild.getWriter().getConfig().setRAMBufferSizeMB(IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB);
+
+        long previousGeneration = generation;
+        Directory previousDirectory = directory;
+        IndexWriter previousWriter = writer;
+        SearcherManager previousSearcherManager = searcherManager;
+        ControlledRealTimeReopenThread<IndexSearcher> previousReopenThread = reopenThread;
+
+        // The first searcher of the rebuild is opened (and warmed) while the live index still serves searches
+        SearcherManager rebuildSearcherManager = newSearcherManager(rebuild.getWriter());
+
+        swapLock.writeLock().lock();
+        try {
+            if (directoryFactory.isPersistent()) {
+                writeCurrentGeneration(rebuild.getGeneration());
+            }
+            generation = rebuild.getGeneration();
+            directory = rebuild.getDirectory();
+            writer = rebuild.getWriter();
+            searcherManager = rebuildSearcherManager;
+            startReopenThread();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        refreshListeners.forEach(listener -> {
+            try {
+                listener.afterRefresh(true);
+            } catch (IOException e) {
+                log.warn("==> Refresh listener failed after index swap, index: {}", name, e);
+            }
+        });
+        log.info("==> Swapped index generation, index: {}, {} -> {}", name, previousGeneration, generation);
+
+        // Changes still pending in the previous writer are superseded by the rebuild
+        previousReopenThread.close();
+        IOUtils.close(previousSearcherManager, previousWriter::rollback, previousDirectory);
+        if (!directoryFactory.isPersistent()) {
+            return;
+        }
+        try {
+            IOUtils.rm(generationPath(previousGeneration));
+        } catch (IOException e) {
+            // Files may still be open by in-flight searches on some platforms, removed on the next start
+            log.warn("==> Failed to delete previous index generation, index: {}, generation: {}", name, previousGeneration, e);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Analyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    public MultilingualAnalyzer getMultilingualAnalyzer() {
+        return multilingualAnalyzer;
+    }
+
+    /**
+     * Query-side analyzer of the n-gram sub-fields
+     * @return
+     */
+    public Analyzer getNGramQueryAnalyzer() {
+        return ngramQueryAnalyzer;
+    }
+
+    /**
+     * Whether the field has an n-gram "contains" sub-field
+     * @param column
+     * @return
+     */
+    public boolean hasNGramField(String column) {
+        return ngramColumns.contains(column);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (reopenThread != null) {
+            reopenThread.close();
+        }
+        if (searcherManager != null) {
+            searcherManager.close();
+        }
+        if (writer != null) {
+            writer.close();
+        }
+        if (directory != null) {
+            directory.close();
+        }
+        if (analyzer != null) {
+            analyzer.close();
+            multilingualAnalyzer.close();
+            ngramAnalyzer.close();
+            ngramQueryAnalyzer.close();
+        }
+        log.info("==> Lucene index engine closed, index: {}", name);
+    }
+
+    private IndexWriterConfig newWriterConfig(IndexWriterConfig.OpenMode openMode, double ramBufferSizeMB) {
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setOpenMode(openMode);
+        config.setRAMBufferSizeMB(ramBufferSizeMB);
+        return config;
+    }
+
+    /**
+     * NRT searcher manager over a writer
+     * @param indexWriter
+     * @return
+     * @throws IOException
+     */
+    private SearcherManager newSearcherManager(IndexWriter indexWriter) throws IOException {
+        // Readers are opened from the writer so uncommitted changes are visible after refresh
+        SearcherManager manager = new SearcherManager(indexWriter,
+                new FacetSearcherFactory(this::warm, queryCache, queryCachingPolicy, searchExecutor));
+        refreshListeners.forEach(manager::addListener);
+        return manager;
+    }
+
+    /**
+     * Background refresh thread of the current searcher manager
+     */
+    private void startReopenThread() {
+        reopenThread = new ControlledRealTimeReopenThread<>(writer, searcherManager,
+                refreshIntervalMillis / 1000.0, MIN_STALE_SEC);
+        reopenThread.setName("LuceneReopen-" + name + "-" + generation);
+        reopenThread.setDaemon(true);
+        reopenThread.start();
+    }
+
+    private void warm(IndexSearcher searcher, IndexReader previousReader) {
+        SearcherWarmer currentWarmer = warmer;
+        if (currentWarmer != null) {
+            currentWarmer.warm(searcher, previousReader);
+        }
+    }
+
+    /**
+     * Live generation named by the current file.
+     * An index written before generation directories existed (files directly in the index directory)
+     * is moved into the first generation, so it keeps serving until it is rebuilt
+     * @return
+     * @throws IOException
+     */
+    private long readCurrentGeneration() throws IOException {
+        Path currentFile = indexPath.resolve(CURRENT_FILE);
+        if (Files.exists(currentFile)) {
+            String value = new String(Files.readAllBytes(currentFile), StandardCharsets.UTF_8).trim();
+            return Long.parseLong(value.substring(GENERATION_PREFIX.length()));
+        }
+
+        long firstGeneration = 1;
+        Path firstPath = generationPath(firstGeneration);
+        Files.createDirectories(firstPath);
+        try (Directory legacyDirectory = FSDirectory.open(indexPath)) {
+            if (DirectoryReader.indexExists(legacyDirectory)) {
+                List<Path> legacyFiles = new ArrayList<>();
+                try (Stream<Path> files = Files.list(indexPath)) {
+                    files.filter(Files::isRegularFile).forEach(legacyFiles::add);
+                }
+                for (Path file : legacyFiles) {
+                    Files.move(file, firstPath.resolve(file.getFileName()));
+                }
+                log.info("==> Moved existing index into its first generation, index: {}, files: {}", name, legacyFiles.size());
+            }
+        }
+        writeCurrentGeneration(firstGeneration);
+        return firstGeneration;
+    }
+
+    /**
+     * Point the current file at a generation: written to a temporary file, then renamed over the current one
+     * @param newGeneration
+     * @throws IOException
+     */
+    private void writeCurrentGeneration(long newGeneration) throws IOException {
+        Path tempFile = indexPath.resolve(CURRENT_FILE + ".tmp");
+        Files.write(tempFile, (GENERATION_PREFIX + newGeneration).getBytes(StandardCharsets.UTF_8));
+        Files.move(tempFile, indexPath.resolve(CURRENT_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Delete generation directories other than the live one (left by an interrupted rebuild or a failed delete)
+     * @throws IOException
+     */
+    private void deleteStaleGenerations() throws IOException {
+        Path livePath = generationPath(generation);
+        List<Path> stalePaths = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(indexPath)) {
+            paths.filter(path -> Files.isDirectory(path)
+                            && path.getFileName().toString().startsWith(GENERATION_PREFIX)
+                            && !path.equals(livePath))
+                    .forEach(stalePaths::add);
+        }
+        for (Path stalePath : stalePaths) {
+            IOUtils.rm(stalePath);
+            log.info("==> Deleted stale index generation: {}", stalePath);
+        }
+    }
+
+    /**
+     * Directory of a generation, null for in-memory storage
+     * @param generationNumber
+     * @return
+     */
+    private Path generationPath(long generationNumber) {
+        return directoryFactory.isPersistent() ? indexPath.resolve(GENERATION_PREFIX + generationNumber) : null;
+    }
+}
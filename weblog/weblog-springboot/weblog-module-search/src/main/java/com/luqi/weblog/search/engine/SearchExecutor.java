@@ -0,0 +1,114 @@
+package com.luqi.weblog.search.engine;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Dedicated, bounded thread pool the searchers collect index segments on, together with the policy
+ * that groups segments into slices (see {@link #slices(List)}).
+ * The searching thread collects the last slice itself while the pool collects the others.
+ * When the pool and its queue are full a slice is collected on the searching thread,
+ * so under load searches degrade to serial collection instead of queueing up behind each other.
+ **/
+public class SearchExecutor implements Executor, Closeable {
+
+    /**
+     * Idle pool threads are released after this time (seconds)
+     */
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
+    private final ThreadPoolExecutor pool;
+
+    private final int maxDocsPerSlice;
+
+    private final int maxSegmentsPerSlice;
+
+    /**
+     * @param threads Pool size
+     * @param queueSize Slices waiting for a pool thread, beyond that they run on the searching thread
+     * @param maxDocsPerSlice Maximum number of documents of a slice, a larger segment is a slice of its own
+     * @param maxSegmentsPerSlice Maximum number of segments of a slice
+     */
+    public SearchExecutor(int threads, int queueSize, int maxDocsPerSlice, int maxSegmentsPerSlice) {
+        this.pool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+                new ThreadFactoryBuilder().setNameFormat("LuceneSearch-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.pool.allowCoreThreadTimeOut(true);
+        this.maxDocsPerSlice = Math.max(1, maxDocsPerSlice);
+        this.maxSegmentsPerSlice = Math.max(1, maxSegmentsPerSlice);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        pool.execute(task);
+    }
+
+    /**
+     * Group the segments of a reader into slices, each collected by one thread.
+     * Segments are taken largest first: a segment over the document limit is a slice of its own,
+     * smaller ones are packed together until the slice reaches the document or segment limit.
+     * An index smaller than one slice is collected on the searching thread only
+     * @param leaves Segments of the reader
+     * @return
+     */
+    public IndexSearcher.LeafSlice[] slices(List<LeafReaderContext> leaves) {
+        List<LeafReaderContext> sorted = new ArrayList<>(leaves);
+        sorted.sort(Comparator.comparingInt((LeafReaderContext leaf) -> leaf.reader().maxDoc()).reversed());
+
+        List<IndexSearcher.LeafSlice> slices = new ArrayList<>();
+        List<LeafReaderContext> group = new ArrayList<>();
+        long groupDocs = 0;
+        for (LeafReaderContext leaf : sorted) {
+            int maxDoc = leaf.reader().maxDoc();
+            if (maxDoc > maxDocsPerSlice) {
+                slices.add(new IndexSearcher.LeafSlice(leaf));
+                continue;
+            }
+            group.add(leaf);
+            groupDocs += maxDoc;
+            if (groupDocs > maxDocsPerSlice || group.size() >= maxSegmentsPerSlice) {
+                slices.add(new IndexSearcher.LeafSlice(group.toArray(new LeafReaderContext[0])));
+                group.clear();
+                groupDocs = 0;
+            }
+        }
+        if (!group.isEmpty()) {
+            slices.add(new IndexSearcher.LeafSlice(group.toArray(new LeafReaderContext[0])));
+        }
+        return slices.toArray(new IndexSearcher.LeafSlice[0]);
+    }
+
+    /**
+     * Pool size
+     * @return
+     */
+    public int getThreads() {
+        return pool.getMaximumPoolSize();
+    }
+
+    /**
+     * Let the running slices finish and stop the pool
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
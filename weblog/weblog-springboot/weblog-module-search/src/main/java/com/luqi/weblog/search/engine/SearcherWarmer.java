@@ -0,0 +1,21 @@
+package com.luqi.weblog.search.engine;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Warms a new searcher before the engine publishes it (on open, NRT reopen and swap),
+ * so the first searches on it do not pay for cold files and lazily loaded structures
+ **/
+@FunctionalInterface
+public interface SearcherWarmer {
+
+    /**
+     * Warm a searcher that is not visible to searches yet, must not throw
+     * @param searcher New searcher
+     * @param previousReader Reader of the searcher it replaces, null on open or after a swap
+     */
+    void warm(IndexSearcher searcher, IndexReader previousReader);
+}
@@ -0,0 +1,51 @@
+package com.luqi.weblog.search.facet;
+
+import com.luqi.weblog.search.engine.SearchExecutor;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Searcher carrying the SortedSetDocValues facet state of its reader.
+ * The state (global ordinals of every facet label) is built once per reopen instead of once per query.
+ * With a {@link SearchExecutor} the segments are collected in parallel slices
+ **/
+public class FacetIndexSearcher extends IndexSearcher {
+
+    /**
+     * Facet state, null when the index has no facet field yet
+     */
+    private final SortedSetDocValuesReaderState facetState;
+
+    public FacetIndexSearcher(IndexReader reader, SortedSetDocValuesReaderState facetState) {
+        this(reader, facetState, null);
+    }
+
+    /**
+     * @param reader
+     * @param facetState
+     * @param executor Executor the slices are collected on, null to collect all segments on the searching thread
+     */
+    public FacetIndexSearcher(IndexReader reader, SortedSetDocValuesReaderState facetState, SearchExecutor executor) {
+        super(reader, executor);
+        this.facetState = facetState;
+    }
+
+    @Override
+    protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+        // Called by the IndexSearcher constructor before the fields of this class are set,
+        // the slice policy therefore comes with the executor
+        Executor executor = getExecutor();
+        return executor instanceof SearchExecutor ? ((SearchExecutor) executor).slices(leaves) : super.slices(leaves);
+    }
+
+    public SortedSetDocValuesReaderState getFacetState() {
+        return facetState;
+    }
+}
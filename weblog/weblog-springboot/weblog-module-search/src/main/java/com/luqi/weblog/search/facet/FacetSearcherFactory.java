@@ -0,0 +1,68 @@
+package com.luqi.weblog.search.facet;
+
+import com.luqi.weblog.search.engine.SearchExecutor;
+import com.luqi.weblog.search.engine.SearcherWarmer;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.QueryCache;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.SearcherFactory;
+
+import java.io.IOException;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Creates {@link FacetIndexSearcher}s, called by the searcher manager on every reopen.
+ * Each searcher is warmed before the manager publishes it.
+ * Searchers share the filter cache of the engine, entries of unchanged segments survive reopens,
+ * and the search executor their segment slices are collected on
+ **/
+public class FacetSearcherFactory extends SearcherFactory {
+
+    private final SearcherWarmer warmer;
+
+    /**
+     * Filter cache and its caching policy, null for Lucene's defaults
+     */
+    private final QueryCache queryCache;
+    private final QueryCachingPolicy queryCachingPolicy;
+
+    /**
+     * Executor of parallel segment collection, null for serial collection on the searching thread
+     */
+    private final SearchExecutor searchExecutor;
+
+    public FacetSearcherFactory(SearcherWarmer warmer, QueryCache queryCache, QueryCachingPolicy queryCachingPolicy,
+                                SearchExecutor searchExecutor) {
+        this.warmer = warmer;
+        this.queryCache = queryCache;
+        this.queryCachingPolicy = queryCachingPolicy;
+        this.searchExecutor = searchExecutor;
+    }
+
+    @Override
+    public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) throws IOException {
+        IndexSearcher searcher = new FacetIndexSearcher(reader, buildFacetState(reader), searchExecutor);
+        if (queryCache != null) {
+            searcher.setQueryCache(queryCache);
+            searcher.setQueryCachingPolicy(queryCachingPolicy);
+        }
+        warmer.warm(searcher, previousReader);
+        return searcher;
+    }
+
+    private SortedSetDocValuesReaderState buildFacetState(IndexReader reader) throws IOException {
+        FieldInfo fieldInfo = FieldInfos.getMergedFieldInfos(reader).fieldInfo(FacetsConfig.DEFAULT_INDEX_FIELD_NAME);
+        if (fieldInfo == null || fieldInfo.getDocValuesType() != DocValuesType.SORTED_SET) {
+            return null;
+        }
+        return new DefaultSortedSetDocValuesReaderState(reader);
+    }
+}
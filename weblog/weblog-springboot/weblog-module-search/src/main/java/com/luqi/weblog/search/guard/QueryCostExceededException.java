@@ -0,0 +1,13 @@
+package com.luqi.weblog.search.guard;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: A search was refused because its estimated cost is over the budget
+ **/
+public class QueryCostExceededException extends RuntimeException {
+
+    public QueryCostExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,128 @@
+package com.luqi.weblog.search.guard;
+
+import com.luqi.weblog.search.config.LuceneProperties;
+import com.luqi.weblog.search.metrics.QueryExpansion;
+import com.luqi.weblog.search.model.SearchRequest;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.util.automaton.ByteRunAutomaton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Bounds the cost of a single search.
+ * Before execution the request and the built query are checked against a budget: number of keywords,
+ * wildcard patterns that match (almost) every term, number of clauses, and the number of index terms
+ * the multi-term queries expand to, estimated by walking the term dictionary until the budget is exceeded.
+ * A search over the budget is refused with a {@link QueryCostExceededException}.
+ * Collection itself is wrapped in a time limit shared by all slices of the search,
+ * a search that runs out of time returns the hits collected so far
+ **/
+@Component
+public class QueryCostGuard {
+
+    private final int maxTerms;
+    private final int maxClauses;
+    private final long maxExpansions;
+    private final int wildcardMinLiteralChars;
+    private final int fuzzyMaxExpansions;
+    private final long timeoutMillis;
+
+    @Autowired
+    public QueryCostGuard(LuceneProperties properties) {
+        this.maxTerms = properties.getQueryMaxTerms();
+        this.maxClauses = properties.getQueryMaxClauses();
+        this.maxExpansions = properties.getQueryMaxExpansions();
+        this.wildcardMinLiteralChars = properties.getWildcardMinLiteralChars();
+        this.fuzzyMaxExpansions = properties.getFuzzyMaxExpansions();
+        this.timeoutMillis = properties.getSearchTimeoutMillis();
+    }
+
+    /**
+     * Check the keyword of a request, before any query is built
+     * @param request Normalized search request
+     */
+    public void checkRequest(SearchRequest request) {
+        if (!request.isFuzzySearch() && !request.isWildcardSearch()) {
+            return;
+        }
+        String[] terms = request.getWord().split(" ");
+        if (terms.length > maxTerms) {
+            throw new QueryCostExceededException(String.format("Query has %d keywords, at most %d are allowed",
+                    terms.length, maxTerms));
+        }
+        if (request.isWildcardSearch()) {
+            for (String term : terms) {
+                // Without wildcards the term becomes an n-gram lookup, only explicit patterns are scans
+                boolean explicitWildcard = term.contains("*") || term.contains("?");
+                String literal = term.replace("*", "").replace("?", "");
+                if (explicitWildcard && literal.codePointCount(0, literal.length()) < wildcardMinLiteralChars) {
+                    throw new QueryCostExceededException(String.format("Wildcard pattern '%s' needs at least %d non-wildcard characters",
+                            term, wildcardMinLiteralChars));
+                }
+            }
+        }
+    }
+
+    /**
+     * Check the built query before it is executed: clause count and estimated term expansion
+     * @param reader Reader the query will run on
+     * @param query Built query, not rewritten
+     */
+    public void checkQuery(IndexReader reader, Query query) {
+        long[] clauses = new long[1];
+        long[] expansions = new long[1];
+        query.visit(new QueryVisitor() {
+            @Override
+            public void consumeTerms(Query leaf, Term... terms) {
+                clauses[0] += terms.length;
+            }
+
+            @Override
+            public void consumeTermsMatching(Query leaf, String field, Supplier<ByteRunAutomaton> automaton) {
+                clauses[0]++;
+                if (leaf instanceof FuzzyQuery) {
+                    // A fuzzy query keeps only its best terms, the expansion is bounded up front
+                    expansions[0] += fuzzyMaxExpansions;
+                } else if (leaf instanceof MultiTermQuery) {
+                    // Stop walking the term dictionary as soon as the budget is exceeded
+                    expansions[0] += QueryExpansion.matchingTerms(reader, (MultiTermQuery) leaf, field,
+                            Math.max(0, maxExpansions - expansions[0]) + 1);
+                }
+                if (expansions[0] > maxExpansions) {
+                    throw new QueryCostExceededException(String.format("Query expands to more than %d index terms",
+                            maxExpansions));
+                }
+            }
+
+            @Override
+            public QueryVisitor getSubVisitor(BooleanClause.Occur occur, Query parent) {
+                return this;
+            }
+        });
+        if (clauses[0] > maxClauses) {
+            throw new QueryCostExceededException(String.format("Query has %d clauses, at most %d are allowed",
+                    clauses[0], maxClauses));
+        }
+    }
+
+    /**
+     * Wrap the collectors of a search in the search time limit, starting now
+     * @param manager
+     * @return Manager telling whether the search ran out of time
+     */
+    public <C extends Collector, T> TimeLimitedCollectorManager<C, T> limit(CollectorManager<C, T> manager) {
+        return new TimeLimitedCollectorManager<>(manager, timeoutMillis);
+    }
+}
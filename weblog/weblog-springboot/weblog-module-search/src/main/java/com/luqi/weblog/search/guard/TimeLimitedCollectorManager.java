@@ -0,0 +1,124 @@
+package com.luqi.weblog.search.guard;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.FilterLeafCollector;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.TimeLimitingCollector;
+import org.apache.lucene.util.Counter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Collector manager whose collectors share one search time limit, counted from the creation of the manager.
+ * A slice that runs out of time stops collecting (its remaining segments are skipped) instead of failing the search,
+ * so the hits of every slice collected so far are still reduced into a partial result
+ **/
+public class TimeLimitedCollectorManager<C extends Collector, T>
+        implements CollectorManager<TimeLimitedCollectorManager<C, T>.SliceCollector, T> {
+
+    private final CollectorManager<C, T> manager;
+
+    private final Counter clock = TimeLimitingCollector.getGlobalCounter();
+
+    private final long baseline = clock.get();
+
+    private final long timeoutMillis;
+
+    private final AtomicBoolean timedOut = new AtomicBoolean();
+
+    /**
+     * @param manager Manager of the collectors
+     * @param timeoutMillis Time limit, less than or equal to 0 for none
+     */
+    public TimeLimitedCollectorManager(CollectorManager<C, T> manager, long timeoutMillis) {
+        this.manager = manager;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public SliceCollector newCollector() throws IOException {
+        C collector = manager.newCollector();
+        if (timeoutMillis <= 0) {
+            return new SliceCollector(collector, collector);
+        }
+        TimeLimitingCollector limited = new TimeLimitingCollector(collector, clock, timeoutMillis);
+        limited.setBaseline(baseline);
+        return new SliceCollector(collector, limited);
+    }
+
+    @Override
+    public T reduce(Collection<SliceCollector> collectors) throws IOException {
+        List<C> sliceCollectors = collectors.stream().map(SliceCollector::getCollector).collect(Collectors.toList());
+        return manager.reduce(sliceCollectors);
+    }
+
+    /**
+     * Whether any slice ran out of time, the reduced result then only covers the hits collected before
+     * @return
+     */
+    public boolean isTimedOut() {
+        return timedOut.get();
+    }
+
+    /**
+     * Collector of one slice, turns the time limit into a terminated collection of the current segment
+     */
+    public final class SliceCollector implements Collector {
+
+        private final C collector;
+
+        private final Collector limited;
+
+        private SliceCollector(C collector, Collector limited) {
+            this.collector = collector;
+            this.limited = limited;
+        }
+
+        C getCollector() {
+            return collector;
+        }
+
+        @Override
+        public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+            LeafCollector leafCollector;
+            try {
+                leafCollector = limited.getLeafCollector(context);
+            } catch (TimeLimitingCollector.TimeExceededException e) {
+                throw terminate();
+            }
+            if (limited == collector) {
+                return leafCollector;
+            }
+            return new FilterLeafCollector(leafCollector) {
+                @Override
+                public void collect(int doc) throws IOException {
+                    try {
+                        super.collect(doc);
+                    } catch (TimeLimitingCollector.TimeExceededException e) {
+                        throw terminate();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public ScoreMode scoreMode() {
+            return collector.scoreMode();
+        }
+
+        private CollectionTerminatedException terminate() {
+            timedOut.set(true);
+            return new CollectionTerminatedException();
+        }
+    }
+}
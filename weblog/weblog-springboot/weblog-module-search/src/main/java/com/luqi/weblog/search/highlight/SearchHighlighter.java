@@ -0,0 +1,158 @@
+package com.luqi.weblog.search.highlight;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DocumentStoredFieldVisitor;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.PassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.search.uhighlight.WholeBreakIterator;
+
+import java.io.IOException;
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Offset based highlighter of one page of hits.
+ * Match offsets are read from the postings (fields are indexed with offsets), so stored text is never re-analyzed
+ * and the cost grows with the number of matches rather than the text length.
+ * Whole fields (title, summary) are returned in full with matches marked, snippet fields (content)
+ * return their best sentences. Unstored sub-fields (n-gram) highlight the stored text of their source field.
+ * The text of a long field (content) can be kept out of the stored fields in a binary doc values field
+ * named {@link #sourceFieldOf(String)}: hits then load their stored fields without decompressing the long text,
+ * and only the highlighted page reads it from doc values.
+ **/
+public class SearchHighlighter extends UnifiedHighlighter {
+
+    public static final String PRE_TAG = "<span style=\"color: #f73131\">";
+    public static final String POST_TAG = "</span>";
+    public static final String ELLIPSIS = "... ";
+
+    /**
+     * Suffix of the binary doc values field holding the text of an unstored field
+     */
+    public static final String SOURCE_SUFFIX = "_source";
+
+    private static final PassageFormatter FORMATTER = new DefaultPassageFormatter(PRE_TAG, POST_TAG, ELLIPSIS, false);
+
+    /**
+     * Fields highlighted as a whole value
+     */
+    private final Set<String> wholeFields;
+
+    /**
+     * Fields highlighted as best passages, matched against query terms of any field
+     */
+    private final Set<String> snippetFields;
+
+    /**
+     * Unstored field -> stored field holding its text
+     */
+    private final Map<String, String> sourceFields;
+
+    public SearchHighlighter(IndexSearcher searcher, Analyzer indexAnalyzer, Set<String> wholeFields,
+                             Set<String> snippetFields, Map<String, String> sourceFields) {
+        super(searcher, indexAnalyzer);
+        this.wholeFields = wholeFields;
+        this.snippetFields = snippetFields;
+        this.sourceFields = sourceFields;
+        // Offsets cover the whole text, matches late in a long article still produce snippets
+        setMaxLength(Integer.MAX_VALUE - 1);
+        // No match in a field -> null, callers fall back to the stored value
+        setMaxNoHighlightPassages(0);
+    }
+
+    @Override
+    protected BreakIterator getBreakIterator(String field) {
+        return wholeFields.contains(field) ? new WholeBreakIterator() : super.getBreakIterator(field);
+    }
+
+    @Override
+    protected PassageFormatter getFormatter(String field) {
+        return FORMATTER;
+    }
+
+    @Override
+    protected Predicate<String> getFieldMatcher(String field) {
+        // Snippet fields may not be searched themselves, highlight the terms the hit was found with
+        return snippetFields.contains(field) ? queryField -> true : super.getFieldMatcher(field);
+    }
+
+    /**
+     * Name of the binary doc values field holding the text of a field
+     * @param field
+     * @return
+     */
+    public static String sourceFieldOf(String field) {
+        return field + SOURCE_SUFFIX;
+    }
+
+    @Override
+    protected List<CharSequence[]> loadFieldValues(String[] fields, DocIdSetIterator docIter, int cacheCharsThreshold) throws IOException {
+        // Field holding the text of each highlighted field (n-gram sub-fields map to their column)
+        String[] sources = Arrays.stream(fields).map(this::sourceOf).toArray(String[]::new);
+        Set<String> storedFields = new HashSet<>(Arrays.asList(sources));
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+
+        List<CharSequence[]> values = new ArrayList<>();
+        int sumChars = 0;
+        for (int docId = docIter.nextDoc(); docId != DocIdSetIterator.NO_MORE_DOCS; docId = docIter.nextDoc()) {
+            LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+            CharSequence[] docValues = new CharSequence[fields.length];
+            Document stored = null;
+            for (int i = 0; i < fields.length; i++) {
+                BinaryDocValues source = docValuesSource(leaf, sources[i]);
+                if (source != null) {
+                    docValues[i] = source.advanceExact(docId - leaf.docBase) ? source.binaryValue().utf8ToString() : null;
+                } else {
+                    // Stored fields are only loaded when some text is not in doc values
+                    if (stored == null) {
+                        DocumentStoredFieldVisitor visitor = new DocumentStoredFieldVisitor(storedFields);
+                        searcher.doc(docId, visitor);
+                        stored = visitor.getDocument();
+                    }
+                    docValues[i] = stored.get(sources[i]);
+                }
+                sumChars += docValues[i] == null ? 0 : docValues[i].length();
+            }
+            values.add(docValues);
+
+            // Same batching as the default loader: stop once enough text is cached
+            if (cacheCharsThreshold == 0 || sumChars > cacheCharsThreshold) {
+                break;
+            }
+        }
+        return values;
+    }
+
+    private String sourceOf(String field) {
+        return sourceFields.getOrDefault(field, field);
+    }
+
+    /**
+     * Doc values holding the text of a field in a segment, null when the text is stored
+     * (or the segment was written before the field was moved to doc values)
+     */
+    private static BinaryDocValues docValuesSource(LeafReaderContext leaf, String field) throws IOException {
+        FieldInfo fieldInfo = leaf.reader().getFieldInfos().fieldInfo(sourceFieldOf(field));
+        if (fieldInfo == null || fieldInfo.getDocValuesType() != DocValuesType.BINARY) {
+            return null;
+        }
+        return leaf.reader().getBinaryDocValues(fieldInfo.name);
+    }
+}
@@ -0,0 +1,203 @@
+package com.luqi.weblog.search.index;
+
+import com.luqi.weblog.common.constant.Constants;
+import com.luqi.weblog.common.domain.dos.ArticleDO;
+import com.luqi.weblog.common.domain.dos.ArticleWithContentDO;
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Objects;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: 构建文章 Lucene 文档，索引初始化与文章发布/更新事件共用
+ **/
+public final class ArticleDocumentBuilder {
+
+    /**
+     * 存储的分词字段，倒排表中同时记录偏移量，高亮时直接读取偏移量，无需重新分词；
+     * 同时保存词向量，计算相关文章（MoreLikeThis）时直接读取文档的词项
+     */
+    private static final FieldType TEXT_WITH_OFFSETS_STORED = textWithOffsets(TextField.TYPE_STORED, true);
+
+    /**
+     * 不存储但保存词向量的分词字段（正文），原文写入 BinaryDocValues，加载命中时不必解压正文
+     */
+    private static final FieldType TEXT_WITH_OFFSETS_TERM_VECTORS = textWithOffsets(TextField.TYPE_NOT_STORED, true);
+
+    /**
+     * 不存储的分词字段（n-gram 子字段），同样记录偏移量
+     */
+    private static final FieldType TEXT_WITH_OFFSETS_NOT_STORED = textWithOffsets(TextField.TYPE_NOT_STORED, false);
+
+    /**
+     * 精简索引的正文字段：只保存词项位置与词向量（相关文章），不记录偏移量，也不生成摘要片段
+     */
+    private static final FieldType TEXT_WITH_TERM_VECTORS = textWithTermVectors();
+
+    private ArticleDocumentBuilder() {
+    }
+
+    /**
+     * 构建文章文档（完整索引）
+     * @param articleDO 文章
+     * @param content 文章正文
+     * @param relations 文章所属的分类与标签
+     * @return
+     */
+    public static Document build(ArticleDO articleDO, String content, ArticleRelations relations) {
+        return build(articleDO, content, relations, false);
+    }
+
+    /**
+     * 构建文章文档
+     * @param articleDO 文章
+     * @param content 文章正文
+     * @param relations 文章所属的分类与标签
+     * @param lean 是否为精简索引：只存储 ID，标题、摘要原文写入列存供高亮读取，不保存封面、发布时间文本与正文原文，
+     *             命中由文章摘要缓存（ArticleSummaryCache）组装
+     * @return
+     */
+    public static Document build(ArticleDO articleDO, String content, ArticleRelations relations, boolean lean) {
+        if (lean) {
+            return buildLean(articleDO, content, relations);
+        }
+        Document document = new Document();
+        // 设置文档字段 Field
+        // ID：不分词的精确词项（更新/删除按词项定位文档），并记录列存数值
+        document.add(new StringField(ArticleIndex.COLUMN_ID, String.valueOf(articleDO.getId()), Field.Store.YES));
+        document.add(new NumericDocValuesField(ArticleIndex.COLUMN_ID, articleDO.getId()));
+        document.add(new Field(ArticleIndex.COLUMN_TITLE, articleDO.getTitle(), TEXT_WITH_OFFSETS_STORED));
+        // 封面：仅存储，不参与检索
+        document.add(new StoredField(ArticleIndex.COLUMN_COVER, articleDO.getCover()));
+        document.add(new Field(ArticleIndex.COLUMN_SUMMARY, articleDO.getSummary(), TEXT_WITH_OFFSETS_STORED));
+        // 正文：参与检索，原文单独存入列存，仅在生成摘要片段时按文档读取
+        document.add(new Field(ArticleIndex.COLUMN_CONTENT, content, TEXT_WITH_OFFSETS_TERM_VECTORS));
+        document.add(new BinaryDocValuesField(ArticleIndex.COLUMN_CONTENT_SOURCE, new BytesRef(content)));
+        // 发布时间：数值点（范围过滤）+ 列存数值（排序），存储格式化后的文本用于展示
+        long createTime = toEpochMilli(articleDO.getCreateTime());
+        document.add(new LongPoint(ArticleIndex.COLUMN_CREATE_TIME, createTime));
+        document.add(new NumericDocValuesField(ArticleIndex.COLUMN_CREATE_TIME, createTime));
+        document.add(new StoredField(ArticleIndex.COLUMN_CREATE_TIME, Constants.DATE_TIME_FORMATTER.format(articleDO.getCreateTime())));
+        document.add(readNumField(articleDO));
+
+        return withRelations(withNGrams(document, articleDO), articleDO, relations);
+    }
+
+    /**
+     * 构建精简索引的文章文档，存储字段只有 ID，加载命中时不再解压存储字段
+     * @param articleDO 文章
+     * @param content 文章正文
+     * @param relations 文章所属的分类与标签
+     * @return
+     */
+    private static Document buildLean(ArticleDO articleDO, String content, ArticleRelations relations) {
+        Document document = new Document();
+        document.add(new StringField(ArticleIndex.COLUMN_ID, String.valueOf(articleDO.getId()), Field.Store.YES));
+        document.add(new NumericDocValuesField(ArticleIndex.COLUMN_ID, articleDO.getId()));
+        // 标题、摘要：不存储，原文写入列存，高亮时按文档读取
+        document.add(new Field(ArticleIndex.COLUMN_TITLE, articleDO.getTitle(), TEXT_WITH_OFFSETS_TERM_VECTORS));
+        document.add(new BinaryDocValuesField(ArticleIndex.COLUMN_TITLE_SOURCE, new BytesRef(articleDO.getTitle())));
+        document.add(new Field(ArticleIndex.COLUMN_SUMMARY, articleDO.getSummary(), TEXT_WITH_OFFSETS_TERM_VECTORS));
+        document.add(new BinaryDocValuesField(ArticleIndex.COLUMN_SUMMARY_SOURCE, new BytesRef(articleDO.getSummary())));
+        // 正文：只参与检索与相关文章计算，不保留原文
+        document.add(new Field(ArticleIndex.COLUMN_CONTENT, content, TEXT_WITH_TERM_VECTORS));
+        // 发布时间：数值点（范围过滤）+ 列存数值（排序）
+        long createTime = toEpochMilli(articleDO.getCreateTime());
+        document.add(new LongPoint(ArticleIndex.COLUMN_CREATE_TIME, createTime));
+        document.add(new NumericDocValuesField(ArticleIndex.COLUMN_CREATE_TIME, createTime));
+        document.add(readNumField(articleDO));
+
+        return withRelations(withNGrams(document, articleDO), articleDO, relations);
+    }
+
+    private static NumericDocValuesField readNumField(ArticleDO articleDO) {
+        // 阅读量：仅列存数值（热度加权、按阅读量排序），之后的阅读事件原地更新该值
+        return new NumericDocValuesField(ArticleIndex.COLUMN_READ_NUM,
+                Objects.isNull(articleDO.getReadNum()) ? 0L : articleDO.getReadNum());
+    }
+
+    private static Document withNGrams(Document document, ArticleDO articleDO) {
+        // n-gram 子字段，子串和中文查询改写为对这些字段的词项查找
+        document.add(new Field(ArticleIndex.COLUMN_TITLE_NGRAM, articleDO.getTitle(), TEXT_WITH_OFFSETS_NOT_STORED));
+        document.add(new Field(ArticleIndex.COLUMN_SUMMARY_NGRAM, articleDO.getSummary(), TEXT_WITH_OFFSETS_NOT_STORED));
+        return document;
+    }
+
+    private static Document withRelations(Document document, ArticleDO articleDO, ArticleRelations relations) {
+        // 分类 / 标签：ID 精确词项用于筛选，"ID:名称" 写入 SortedSetDocValues 分面用于统计
+        relations.categoriesOf(articleDO.getId()).stream().findFirst().ifPresent(categoryDO -> {
+            document.add(new StringField(ArticleIndex.COLUMN_CATEGORY_ID, String.valueOf(categoryDO.getId()), Field.Store.NO));
+            document.add(new SortedSetDocValuesFacetField(ArticleIndex.FACET_CATEGORY, ArticleFacets.label(categoryDO)));
+        });
+        relations.tagsOf(articleDO.getId()).forEach(tagDO -> {
+            document.add(new StringField(ArticleIndex.COLUMN_TAG_ID, String.valueOf(tagDO.getId()), Field.Store.NO));
+            document.add(new SortedSetDocValuesFacetField(ArticleIndex.FACET_TAG, ArticleFacets.label(tagDO)));
+        });
+
+        try {
+            // 将分面字段转换为实际写入的 DocValues 字段
+            return ArticleFacets.CONFIG.build(document);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 构建文章文档（全量重建索引时使用，文章与正文由同一查询读出）
+     * @param article 文章及其正文
+     * @param relations 文章所属的分类与标签
+     * @param lean 是否为精简索引
+     * @return
+     */
+    public static Document build(ArticleWithContentDO article, ArticleRelations relations, boolean lean) {
+        ArticleDO articleDO = ArticleDO.builder()
+                .id(article.getId())
+                .title(article.getTitle())
+                .cover(article.getCover())
+                .summary(article.getSummary())
+                .createTime(article.getCreateTime())
+                .readNum(article.getReadNum())
+                .build();
+        return build(articleDO, Objects.isNull(article.getContent()) ? "" : article.getContent(), relations, lean);
+    }
+
+    /**
+     * 时间转换为索引中的毫秒时间戳（系统时区），构建文档与范围查询共用
+     * @param dateTime
+     * @return
+     */
+    public static long toEpochMilli(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static FieldType textWithOffsets(FieldType base, boolean termVectors) {
+        FieldType type = new FieldType(base);
+        type.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        type.setStoreTermVectors(termVectors);
+        type.freeze();
+        return type;
+    }
+
+    private static FieldType textWithTermVectors() {
+        FieldType type = new FieldType(TextField.TYPE_NOT_STORED);
+        type.setStoreTermVectors(true);
+        type.freeze();
+        return type;
+    }
+}
@@ -0,0 +1,54 @@
+package com.luqi.weblog.search.index;
+
+import com.luqi.weblog.common.domain.dos.ArticleFacetDO;
+import org.apache.lucene.facet.FacetsConfig;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: 文章分面（分类、标签）的配置与标签值编码。
+ * 分面值为 "ID:名称"，统计结果无需再查询数据库即可展示名称
+ **/
+public final class ArticleFacets {
+
+    /**
+     * 分面配置，一篇文章可有多个标签
+     */
+    public static final FacetsConfig CONFIG = new FacetsConfig();
+
+    private static final String SEPARATOR = ":";
+
+    static {
+        CONFIG.setMultiValued(ArticleIndex.FACET_TAG, true);
+    }
+
+    private ArticleFacets() {
+    }
+
+    /**
+     * 编码分面值
+     * @param facetDO 分类或标签
+     * @return
+     */
+    public static String label(ArticleFacetDO facetDO) {
+        return facetDO.getId() + SEPARATOR + facetDO.getName();
+    }
+
+    /**
+     * 解析分面值中的 ID
+     * @param label
+     * @return
+     */
+    public static Long idOf(String label) {
+        return Long.valueOf(label.substring(0, label.indexOf(SEPARATOR)));
+    }
+
+    /**
+     * 解析分面值中的名称
+     * @param label
+     * @return
+     */
+    public static String nameOf(String label) {
+        return label.substring(label.indexOf(SEPARATOR) + 1);
+    }
+}
@@ -1,11 +1,24 @@
 package com.luqi.weblog.search.index;
 
+import com.luqi.weblog.search.analyzer.NGramAnalyzer;
+import com.luqi.weblog.search.highlight.SearchHighlighter;
+
 public interface ArticleIndex {
     /**
      * 索引名称
      */
     String NAME = "article";
 
+    /**
+     * 索引结构版本，字段类型或分词方式变化时递增，启动时版本不一致的索引会全量重建
+     */
+    String SCHEMA_VERSION = "6";
+
+    /**
+     * 精简索引（lucene.lean-index）的结构版本后缀
+     */
+    String LEAN_SCHEMA_SUFFIX = "-lean";
+
     // --------------------- 文档字段 ---------------------
     String COLUMN_ID = "id";
 
@@ -18,4 +31,36 @@ public interface ArticleIndex {
     String COLUMN_CONTENT = "content";
 
     String COLUMN_CREATE_TIME = "createTime";
+
+    /**
+     * 阅读量：仅写入列存数值（NumericDocValues），阅读事件通过 IndexWriter#updateNumericDocValue 原地批量更新，无需重建文档
+     */
+    String COLUMN_READ_NUM = "readNum";
+
+    // --------------------- 分类 / 标签（精确词项用于筛选，分面用于统计） ---------------------
+    String COLUMN_CATEGORY_ID = "categoryId";
+
+    String COLUMN_TAG_ID = "tagId";
+
+    String FACET_CATEGORY = "category";
+
+    String FACET_TAG = "tag";
+
+    // --------------------- n-gram 子字段（仅索引，不存储，用于包含/中文查询） ---------------------
+    String COLUMN_TITLE_NGRAM = COLUMN_TITLE + NGramAnalyzer.FIELD_SUFFIX;
+
+    String COLUMN_SUMMARY_NGRAM = COLUMN_SUMMARY + NGramAnalyzer.FIELD_SUFFIX;
+
+    /**
+     * 带有 n-gram 子字段的字段
+     */
+    String[] NGRAM_COLUMNS = {COLUMN_TITLE, COLUMN_SUMMARY};
+
+    // --------------------- 正文原文（BinaryDocValues，仅供摘要片段读取，加载命中的存储字段时不解压正文） ---------------------
+    String COLUMN_CONTENT_SOURCE = SearchHighlighter.sourceFieldOf(COLUMN_CONTENT);
+
+    // --------------------- 标题、摘要原文（BinaryDocValues，仅精简索引写入，供高亮读取） ---------------------
+    String COLUMN_TITLE_SOURCE = SearchHighlighter.sourceFieldOf(COLUMN_TITLE);
+
+    String COLUMN_SUMMARY_SOURCE = SearchHighlighter.sourceFieldOf(COLUMN_SUMMARY);
 }
\ No newline at end of file
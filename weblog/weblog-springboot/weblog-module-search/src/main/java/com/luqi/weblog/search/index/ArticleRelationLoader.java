@@ -0,0 +1,43 @@
+package com.luqi.weblog.search.index;
+
+import com.luqi.weblog.common.domain.dos.ArticleFacetDO;
+import com.luqi.weblog.common.domain.mapper.ArticleCategoryRelMapper;
+import com.luqi.weblog.common.domain.mapper.ArticleTagRelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: 批量加载文章所属的分类与标签（各一次关联查询），供构建文档的分面字段使用
+ **/
+@Component
+public class ArticleRelationLoader {
+
+    @Autowired
+    private ArticleCategoryRelMapper articleCategoryRelMapper;
+    @Autowired
+    private ArticleTagRelMapper articleTagRelMapper;
+
+    /**
+     * 加载一批文章的分类与标签
+     * @param articleIds
+     * @return
+     */
+    public ArticleRelations load(List<Long> articleIds) {
+        if (articleIds.isEmpty()) {
+            return new ArticleRelations(Collections.emptyMap(), Collections.emptyMap());
+        }
+
+        List<ArticleFacetDO> categoryDOS = articleCategoryRelMapper.selectCategoryFacetsByArticleIds(articleIds);
+        List<ArticleFacetDO> tagDOS = articleTagRelMapper.selectTagFacetsByArticleIds(articleIds);
+
+        return new ArticleRelations(
+                categoryDOS.stream().collect(Collectors.groupingBy(ArticleFacetDO::getArticleId)),
+                tagDOS.stream().collect(Collectors.groupingBy(ArticleFacetDO::getArticleId)));
+    }
+}
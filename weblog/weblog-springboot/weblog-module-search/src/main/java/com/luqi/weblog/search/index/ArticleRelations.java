@@ -0,0 +1,38 @@
+package com.luqi.weblog.search.index;
+
+import com.luqi.weblog.common.domain.dos.ArticleFacetDO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: 一批文章所属的分类与标签，按文章 ID 分组
+ **/
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ArticleRelations {
+    /**
+     * 文章 ID -> 所属分类
+     */
+    private Map<Long, List<ArticleFacetDO>> categories;
+
+    /**
+     * 文章 ID -> 所属标签
+     */
+    private Map<Long, List<ArticleFacetDO>> tags;
+
+    public List<ArticleFacetDO> categoriesOf(Long articleId) {
+        return categories.getOrDefault(articleId, Collections.emptyList());
+    }
+
+    public List<ArticleFacetDO> tagsOf(Long articleId) {
+        return tags.getOrDefault(articleId, Collections.emptyList());
+    }
+}
@@ -0,0 +1,54 @@
+package com.luqi.weblog.search.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.apache.lucene.search.LRUQueryCache;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Counters of the filter cache (per-segment doc id sets of the filter clauses)
+ **/
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class FilterCacheMetrics {
+    /**
+     * Segment lookups answered from the cache
+     */
+    private long hitCount;
+    /**
+     * Segment lookups that found nothing cached
+     */
+    private long missCount;
+    /**
+     * Doc id sets currently cached
+     */
+    private long cacheSize;
+    /**
+     * Doc id sets cached so far, including evicted ones
+     */
+    private long cacheCount;
+    /**
+     * Doc id sets evicted so far
+     */
+    private long evictionCount;
+    /**
+     * Estimated heap used by the cache in bytes
+     */
+    private long ramBytesUsed;
+
+    public static FilterCacheMetrics of(LRUQueryCache cache) {
+        return FilterCacheMetrics.builder()
+                .hitCount(cache.getHitCount())
+                .missCount(cache.getMissCount())
+                .cacheSize(cache.getCacheSize())
+                .cacheCount(cache.getCacheCount())
+                .evictionCount(cache.getEvictionCount())
+                .ramBytesUsed(cache.ramBytesUsed())
+                .build();
+    }
+}
@@ -0,0 +1,83 @@
+package com.luqi.weblog.search.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Lock-free histogram over fixed bucket upper bounds, recording costs one bucket search and two adds
+ **/
+public class Histogram {
+
+    /**
+     * Inclusive upper bounds of the buckets, the last (overflow) bucket has no bound
+     */
+    private final long[] bounds;
+    private final LongAdder[] counts;
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public Histogram(long... bounds) {
+        this.bounds = bounds.clone();
+        this.counts = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(long value) {
+        int index = 0;
+        while (index < bounds.length && value > bounds[index]) {
+            index++;
+        }
+        counts[index].increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Bucket counts and percentile estimates (the upper bound of the bucket the percentile falls into)
+     * @return
+     */
+    public HistogramSnapshot snapshot() {
+        long[] values = new long[counts.length];
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            values[i] = counts[i].sum();
+            count += values[i];
+        }
+
+        List<HistogramSnapshot.Bucket> buckets = new ArrayList<>(values.length);
+        for (int i = 0; i < values.length; i++) {
+            buckets.add(new HistogramSnapshot.Bucket(i < bounds.length ? bounds[i] : null, values[i]));
+        }
+        long maxValue = max.get();
+        return HistogramSnapshot.builder()
+                .count(count)
+                .mean(count == 0 ? 0 : (double) sum.sum() / count)
+                .max(maxValue)
+                .p50(percentile(values, count, 0.50, maxValue))
+                .p95(percentile(values, count, 0.95, maxValue))
+                .p99(percentile(values, count, 0.99, maxValue))
+                .buckets(buckets)
+                .build();
+    }
+
+    private long percentile(long[] values, long count, double percentile, long maxValue) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile * count);
+        long seen = 0;
+        for (int i = 0; i < values.length; i++) {
+            seen += values[i];
+            if (seen >= rank) {
+                return i < bounds.length ? Math.min(bounds[i], maxValue) : maxValue;
+            }
+        }
+        return maxValue;
+    }
+}
@@ -0,0 +1,44 @@
+package com.luqi.weblog.search.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Point-in-time copy of a {@link Histogram}
+ **/
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class HistogramSnapshot {
+    /**
+     * Number of recorded values
+     */
+    private long count;
+    private double mean;
+    private long max;
+    /**
+     * Percentile estimates, upper bound of the bucket the percentile falls into
+     */
+    private long p50;
+    private long p95;
+    private long p99;
+    private List<Bucket> buckets;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Bucket {
+        /**
+         * Inclusive upper bound, null for the overflow bucket
+         */
+        private Long le;
+        private long count;
+    }
+}
@@ -0,0 +1,31 @@
+package com.luqi.weblog.search.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Estimated frequency of a query in a {@link TopQuerySketch}
+ **/
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class QueryCount {
+    /**
+     * Search word (trimmed, lower case)
+     */
+    private String word;
+    private SearchMode mode;
+    /**
+     * Estimated count, over-estimates by at most {@link #error}
+     */
+    private long count;
+    /**
+     * Count inherited from the evicted query this one replaced
+     */
+    private long error;
+}
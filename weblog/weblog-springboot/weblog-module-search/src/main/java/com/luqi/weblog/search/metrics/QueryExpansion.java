@@ -0,0 +1,79 @@
+package com.luqi.weblog.search.metrics;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.util.automaton.ByteRunAutomaton;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Number of index terms a rewritten query expands to.
+ * Explicit terms (term, phrase and the top terms of a fuzzy rewrite) count once each,
+ * a multi-term query that is still unexpanded (constant score wildcard / prefix) counts the terms it matches in each segment.
+ * Enumerating the term dictionary is not free, only call this for queries worth reporting
+ **/
+public final class QueryExpansion {
+
+    private QueryExpansion() {
+    }
+
+    public static long count(IndexReader reader, Query rewritten) {
+        long[] count = new long[1];
+        rewritten.visit(new QueryVisitor() {
+            @Override
+            public void consumeTerms(Query query, Term... terms) {
+                count[0] += terms.length;
+            }
+
+            @Override
+            public void consumeTermsMatching(Query query, String field, Supplier<ByteRunAutomaton> automaton) {
+                count[0] += query instanceof MultiTermQuery
+                        ? matchingTerms(reader, (MultiTermQuery) query, field, Long.MAX_VALUE) : 1;
+            }
+
+            @Override
+            public QueryVisitor getSubVisitor(BooleanClause.Occur occur, Query parent) {
+                return this;
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Number of terms a multi-term query matches, summed over the segments
+     * @param reader
+     * @param query
+     * @param field
+     * @param limit Enumeration stops once this many terms were found
+     * @return At most {@code limit}
+     */
+    public static long matchingTerms(IndexReader reader, MultiTermQuery query, String field, long limit) {
+        long count = 0;
+        try {
+            for (LeafReaderContext leaf : reader.leaves()) {
+                Terms terms = leaf.reader().terms(field);
+                if (terms == null) {
+                    continue;
+                }
+                TermsEnum termsEnum = query.getTermsEnum(terms);
+                while (count < limit && termsEnum.next() != null) {
+                    count++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,193 @@
+package com.luqi.weblog.search.metrics;
+
+import com.luqi.weblog.search.config.LuceneProperties;
+import com.luqi.weblog.search.model.SearchRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Search query metrics: latency and hit count histograms per search mode,
+ * the most frequent (and most frequent zero-result) queries, and a log of recent slow queries.
+ * Recording a search only touches striped counters and a small sketch, nothing grows with the traffic
+ **/
+@Component
+@Slf4j
+public class SearchMetrics {
+
+    /**
+     * Latency bucket bounds in milliseconds
+     */
+    private static final long[] LATENCY_BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000};
+
+    /**
+     * Hit count bucket bounds
+     */
+    private static final long[] HITS_BOUNDS = {0, 1, 5, 10, 50, 100, 1000};
+
+    /**
+     * Maximum length of a logged rewritten query
+     */
+    private static final int MAX_QUERY_LENGTH = 1000;
+
+    /**
+     * Number of queries returned per list by {@link #snapshot()}
+     */
+    private static final int TOP_SIZE = 50;
+
+    private final long slowQueryMillis;
+
+    private final int slowQueryLogSize;
+
+    private final Map<SearchMode, ModeStats> modes = new EnumMap<>(SearchMode.class);
+
+    private final TopQuerySketch topQueries;
+
+    private final TopQuerySketch zeroResultQueries;
+
+    /**
+     * Recent slow queries, newest first
+     */
+    private final Deque<SlowQuery> slowQueries = new ArrayDeque<>();
+
+    @Autowired
+    public SearchMetrics(LuceneProperties properties) {
+        this.slowQueryMillis = properties.getSlowQueryMillis();
+        this.slowQueryLogSize = Math.max(1, properties.getSlowQueryLogSize());
+        this.topQueries = new TopQuerySketch(properties.getTopQueriesCapacity());
+        this.zeroResultQueries = new TopQuerySketch(properties.getTopQueriesCapacity());
+        for (SearchMode mode : SearchMode.values()) {
+            modes.put(mode, new ModeStats());
+        }
+    }
+
+    /**
+     * Record a finished search
+     * @param request Normalized search request
+     * @param elapsedNanos
+     * @param hits Total hit count
+     * @param cached Served from the result cache
+     */
+    public void record(SearchRequest request, long elapsedNanos, long hits, boolean cached) {
+        SearchMode mode = SearchMode.of(request);
+        ModeStats stats = modes.get(mode);
+        stats.latency.record(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        stats.hits.record(hits);
+        if (cached) {
+            stats.cacheHits.increment();
+        }
+
+        String word = request.getWord() == null ? "" : request.getWord().toLowerCase(Locale.ROOT);
+        if (word.isEmpty()) {
+            return;
+        }
+        topQueries.offer(word, mode);
+        if (hits == 0) {
+            zeroResultQueries.offer(word, mode);
+        }
+    }
+
+    /**
+     * Whether a search took long enough to be logged as a slow query
+     * @param elapsedNanos
+     * @return
+     */
+    public boolean isSlow(long elapsedNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos) >= slowQueryMillis;
+    }
+
+    /**
+     * Log a slow query with its rewritten form and the number of terms it expanded to
+     * @param request Normalized search request
+     * @param searcher Searcher the query ran on
+     * @param query Executed query
+     * @param elapsedNanos
+     * @param hits Total hit count
+     */
+    public void recordSlowQuery(SearchRequest request, IndexSearcher searcher, Query query, long elapsedNanos, long hits) {
+        String rewrittenQuery;
+        long expansionCount;
+        try {
+            Query rewritten = searcher.rewrite(query);
+            rewrittenQuery = rewritten.toString();
+            expansionCount = QueryExpansion.count(searcher.getIndexReader(), rewritten);
+        } catch (Exception e) {
+            log.warn("==> Failed to rewrite slow query: {}", query, e);
+            rewrittenQuery = query.toString();
+            expansionCount = -1;
+        }
+        if (rewrittenQuery.length() > MAX_QUERY_LENGTH) {
+            rewrittenQuery = rewrittenQuery.substring(0, MAX_QUERY_LENGTH) + "...";
+        }
+
+        SlowQuery slowQuery = SlowQuery.builder()
+                .time(LocalDateTime.now())
+                .word(request.getWord())
+                .mode(SearchMode.of(request))
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .hits(hits)
+                .rewrittenQuery(rewrittenQuery)
+                .expansionCount(expansionCount)
+                .build();
+        log.warn("==> Slow search query, word: {}, mode: {}, elapsed: {}ms, hits: {}, expanded terms: {}, rewritten: {}",
+                slowQuery.getWord(), slowQuery.getMode(), slowQuery.getElapsedMillis(), hits, expansionCount, rewrittenQuery);
+
+        synchronized (slowQueries) {
+            slowQueries.addFirst(slowQuery);
+            while (slowQueries.size() > slowQueryLogSize) {
+                slowQueries.removeLast();
+            }
+        }
+    }
+
+    /**
+     * Most frequent queries, e.g. to warm up a new searcher
+     * @param size
+     * @return By descending count
+     */
+    public List<QueryCount> getTopQueries(int size) {
+        return topQueries.top(size);
+    }
+
+    public SearchMetricsSnapshot snapshot() {
+        Map<SearchMode, SearchModeMetrics> modeMetrics = new EnumMap<>(SearchMode.class);
+        modes.forEach((mode, stats) -> modeMetrics.put(mode, SearchModeMetrics.builder()
+                .cacheHits(stats.cacheHits.sum())
+                .latency(stats.latency.snapshot())
+                .hits(stats.hits.snapshot())
+                .build()));
+
+        List<SlowQuery> slow;
+        synchronized (slowQueries) {
+            slow = new ArrayList<>(slowQueries);
+        }
+        return SearchMetricsSnapshot.builder()
+                .modes(modeMetrics)
+                .topQueries(topQueries.top(TOP_SIZE))
+                .zeroResultQueries(zeroResultQueries.top(TOP_SIZE))
+                .slowQueries(slow)
+                .build();
+    }
+
+    private static final class ModeStats {
+
+        private final Histogram latency = new Histogram(LATENCY_BOUNDS);
+        private final Histogram hits = new Histogram(HITS_BOUNDS);
+        private final LongAdder cacheHits = new LongAdder();
+    }
+}
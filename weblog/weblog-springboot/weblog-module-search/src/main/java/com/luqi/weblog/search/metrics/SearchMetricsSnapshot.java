@@ -0,0 +1,37 @@
+package com.luqi.weblog.search.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Point-in-time copy of the search metrics
+ **/
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SearchMetricsSnapshot {
+    /**
+     * Metrics per search mode
+     */
+    private Map<SearchMode, SearchModeMetrics> modes;
+    /**
+     * Most frequent queries
+     */
+    private List<QueryCount> topQueries;
+    /**
+     * Most frequent queries without any hit
+     */
+    private List<QueryCount> zeroResultQueries;
+    /**
+     * Recent slow queries, newest first
+     */
+    private List<SlowQuery> slowQueries;
+}
@@ -0,0 +1,21 @@
+package com.luqi.weblog.search.metrics;
+
+import com.luqi.weblog.search.model.SearchRequest;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Query mode of a search, metrics are kept per mode
+ **/
+public enum SearchMode {
+    PLAIN,
+    FUZZY,
+    WILDCARD;
+
+    public static SearchMode of(SearchRequest request) {
+        if (request.isWildcardSearch()) {
+            return WILDCARD;
+        }
+        return request.isFuzzySearch() ? FUZZY : PLAIN;
+    }
+}
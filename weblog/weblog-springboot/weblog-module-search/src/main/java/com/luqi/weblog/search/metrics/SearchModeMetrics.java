@@ -0,0 +1,30 @@
+package com.luqi.weblog.search.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Metrics of one search mode
+ **/
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SearchModeMetrics {
+    /**
+     * Searches served from the result cache
+     */
+    private long cacheHits;
+    /**
+     * Latency in milliseconds
+     */
+    private HistogramSnapshot latency;
+    /**
+     * Distribution of the total hit count
+     */
+    private HistogramSnapshot hits;
+}
@@ -0,0 +1,33 @@
+package com.luqi.weblog.search.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: A search that took longer than the slow query threshold
+ **/
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SlowQuery {
+    private LocalDateTime time;
+    private String word;
+    private SearchMode mode;
+    private long elapsedMillis;
+    private long hits;
+    /**
+     * Query after rewriting (fuzzy / wildcard terms expanded), truncated
+     */
+    private String rewrittenQuery;
+    /**
+     * Number of index terms the query expanded to
+     */
+    private long expansionCount;
+}
@@ -0,0 +1,64 @@
+package com.luqi.weblog.search.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Bounded sketch of the most frequent queries (Space-Saving).
+ * At most {@code capacity} queries are tracked; a new query replaces the least frequent one and inherits its count,
+ * so every query seen more than total / capacity times is guaranteed to be kept
+ **/
+public class TopQuerySketch {
+
+    private final int capacity;
+
+    private final Map<String, QueryCount> counters = new HashMap<>();
+
+    public TopQuerySketch(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    public synchronized void offer(String word, SearchMode mode) {
+        String key = mode + ":" + word;
+        QueryCount counter = counters.get(key);
+        if (counter != null) {
+            counter.setCount(counter.getCount() + 1);
+            return;
+        }
+
+        if (counters.size() < capacity) {
+            counters.put(key, new QueryCount(word, mode, 1, 0));
+            return;
+        }
+
+        // Replace the least frequent query
+        Map.Entry<String, QueryCount> min = null;
+        for (Map.Entry<String, QueryCount> entry : counters.entrySet()) {
+            if (min == null || entry.getValue().getCount() < min.getValue().getCount()) {
+                min = entry;
+            }
+        }
+        counters.remove(min.getKey());
+        long minCount = min.getValue().getCount();
+        counters.put(key, new QueryCount(word, mode, minCount + 1, minCount));
+    }
+
+    /**
+     * Most frequent queries
+     * @param size
+     * @return Copies, by descending count
+     */
+    public synchronized List<QueryCount> top(int size) {
+        return counters.values().stream()
+                .sorted(Comparator.comparingLong(QueryCount::getCount).reversed())
+                .limit(size)
+                .map(counter -> new QueryCount(counter.getWord(), counter.getMode(), counter.getCount(), counter.getError()))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+}
@@ -0,0 +1,26 @@
+package com.luqi.weblog.search.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Hit count of one facet value
+ **/
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class FacetCount {
+    /**
+     * Facet value
+     */
+    private String label;
+    /**
+     * Number of hits with this value
+     */
+    private long count;
+}
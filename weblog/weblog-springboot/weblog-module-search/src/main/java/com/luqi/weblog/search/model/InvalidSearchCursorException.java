@@ -0,0 +1,17 @@
+package com.luqi.weblog.search.model;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: A search cursor is malformed or does not match the sort order of the request (tampered or stale)
+ **/
+public class InvalidSearchCursorException extends IllegalArgumentException {
+
+    public InvalidSearchCursorException(String message) {
+        super(message);
+    }
+
+    public InvalidSearchCursorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,68 @@
+package com.luqi.weblog.search.model;
+
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreDoc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Opaque search cursor, encodes the last hit of a page (score + doc, plus the sort values
+ * of a sorted search) so the next page can be collected with IndexSearcher#searchAfter
+ **/
+public final class SearchCursor {
+
+    private static final String SEPARATOR = ":";
+
+    private SearchCursor() {
+    }
+
+    /**
+     * Encode the last hit of a page into a cursor
+     * @param scoreDoc Hit, a {@link FieldDoc} with long sort values for sorted searches
+     * @return
+     */
+    public static String encode(ScoreDoc scoreDoc) {
+        StringBuilder raw = new StringBuilder()
+                .append(Float.floatToIntBits(scoreDoc.score)).append(SEPARATOR).append(scoreDoc.doc);
+        if (scoreDoc instanceof FieldDoc) {
+            for (Object field : ((FieldDoc) scoreDoc).fields) {
+                raw.append(SEPARATOR).append(((Number) field).longValue());
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor produced by {@link #encode(ScoreDoc)}
+     * @param cursor
+     * @return A {@link FieldDoc} when the cursor carries sort values
+     * @throws InvalidSearchCursorException if the cursor is malformed
+     */
+    public static ScoreDoc decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR);
+            if (parts.length < 2) {
+                throw new InvalidSearchCursorException("Malformed search cursor: " + cursor);
+            }
+            float score = Float.intBitsToFloat(Integer.parseInt(parts[0]));
+            int doc = Integer.parseInt(parts[1]);
+            if (parts.length == 2) {
+                return new ScoreDoc(doc, score);
+            }
+
+            Object[] fields = new Object[parts.length - 2];
+            for (int i = 2; i < parts.length; i++) {
+                fields[i - 2] = Long.parseLong(parts[i]);
+            }
+            return new FieldDoc(doc, score, fields);
+        } catch (InvalidSearchCursorException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSearchCursorException("Malformed search cursor: " + cursor, e);
+        }
+    }
+}
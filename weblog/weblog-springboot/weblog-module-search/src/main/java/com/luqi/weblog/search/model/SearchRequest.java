@@ -0,0 +1,116 @@
+package com.luqi.weblog.search.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Search request against a Lucene index
+ **/
+@Data
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class SearchRequest {
+    /**
+     * Index name
+     */
+    private String index;
+    /**
+     * Query keyword
+     */
+    private String word;
+    /**
+     * Fields to search
+     */
+    private String[] columns;
+    /**
+     * Current page
+     */
+    @Builder.Default
+    private int current = 1;
+    /**
+     * Page size
+     */
+    @Builder.Default
+    private int size = 10;
+    /**
+     * Enable fuzzy search
+     */
+    private boolean fuzzySearch;
+    /**
+     * Max edit distance for fuzzy search (0-2)
+     */
+    @Builder.Default
+    private int maxEdits = 2;
+    /**
+     * Enable wildcard search
+     */
+    private boolean wildcardSearch;
+    /**
+     * Cursor of the previous page, when present the page is collected with searchAfter instead of an offset
+     */
+    private String cursor;
+    /**
+     * Numeric DocValues field holding the ID of a document. When set, hits are returned as IDs read from
+     * the doc values and no stored document is loaded (lean index, the caller hydrates the hits itself)
+     */
+    private String idColumn;
+    /**
+     * Fields returned in full with matches highlighted (e.g. title, summary)
+     */
+    private String[] highlightColumns;
+    /**
+     * Fields returned as their best highlighted passages (e.g. content)
+     */
+    private String[] snippetColumns;
+    /**
+     * Numeric DocValues field to sort by, null sorts by relevance
+     */
+    private String sortColumn;
+    /**
+     * Sort ascending on sortColumn (default descending, e.g. newest first)
+     */
+    private boolean sortAscending;
+    /**
+     * Numeric DocValues field boosting the relevance score (e.g. read count), null for plain relevance.
+     * The score is multiplied by 1 + boostWeight * ln(1 + value), ignored when sorting by sortColumn
+     */
+    private String boostColumn;
+    /**
+     * Weight of boostColumn, 0 disables the boost
+     */
+    private float boostWeight;
+    /**
+     * Long point field to filter by range
+     */
+    private String rangeColumn;
+    /**
+     * Lower bound of the range (inclusive), null for unbounded
+     */
+    private Long rangeFrom;
+    /**
+     * Upper bound of the range (inclusive), null for unbounded
+     */
+    private Long rangeTo;
+    /**
+     * Exact term filters (drill-down): column -> accepted values, a document matches when it has any of the values.
+     * Columns are combined with AND
+     */
+    private Map<String, List<String>> filters;
+    /**
+     * Facet dimensions to count over all hits, counted in the same collector pass as the page
+     */
+    private String[] facetDims;
+    /**
+     * Max number of values returned per facet dimension
+     */
+    @Builder.Default
+    private int facetLimit = 10;
+}
@@ -0,0 +1,70 @@
+package com.luqi.weblog.search.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.apache.lucene.document.Document;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: One page of hits plus the total hit count, produced by a single collector pass
+ **/
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SearchResult {
+    /**
+     * Documents of the requested page, empty when the request reads IDs instead (see SearchRequest#idColumn)
+     */
+    private List<Document> documents;
+    /**
+     * IDs of the hits of the requested page, only set when the request has an ID column
+     */
+    private List<Long> ids;
+    /**
+     * Highlighted values of each document (field -> highlighted text), aligned with documents.
+     * Fields without a match are absent
+     */
+    private List<Map<String, String>> highlights;
+    /**
+     * Total hit count
+     */
+    private long total;
+    /**
+     * Whether the total is exact, false means it is a lower bound (total hits threshold reached)
+     */
+    private boolean totalExact;
+    /**
+     * Whether the search ran out of time and the hits are the ones collected so far
+     */
+    private boolean partial;
+    /**
+     * Cursor to fetch the next page, null when there is no further page
+     */
+    private String nextCursor;
+    /**
+     * Spelling correction of the keyword ("did you mean"), only set when an exact search found few hits
+     */
+    private String suggestion;
+    /**
+     * Facet counts over all hits (dimension -> values by descending count), empty when no facet was requested
+     */
+    private Map<String, List<FacetCount>> facets;
+
+    public static SearchResult empty() {
+        return SearchResult.builder()
+                .documents(Collections.emptyList())
+                .ids(Collections.emptyList())
+                .highlights(Collections.emptyList())
+                .facets(Collections.emptyMap())
+                .totalExact(true)
+                .build();
+    }
+}
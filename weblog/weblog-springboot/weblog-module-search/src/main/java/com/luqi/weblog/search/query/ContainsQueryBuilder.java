@@ -0,0 +1,93 @@
+package com.luqi.weblog.search.query;
+
+import com.luqi.weblog.search.analyzer.NGramAnalyzer;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.cjk.CJKBigramFilter;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+
+import java.io.IOException;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Builds "contains" (substring) queries against an n-gram sub-field.
+ * A substring becomes one or a few term lookups instead of a leading-wildcard scan of the term dictionary.
+ **/
+public final class ContainsQueryBuilder {
+
+    private ContainsQueryBuilder() {
+    }
+
+    /**
+     * Build a query matching documents whose field contains the text
+     * @param queryAnalyzer Query-side n-gram analyzer (no gram expansion)
+     * @param ngramField n-gram sub-field
+     * @param text Substring to look for
+     * @return
+     * @throws IOException
+     */
+    public static Query build(Analyzer queryAnalyzer, String ngramField, String text) throws IOException {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        int clauses = 0;
+
+        try (TokenStream tokenStream = queryAnalyzer.tokenStream(ngramField, text)) {
+            CharTermAttribute termAttr = tokenStream.addAttribute(CharTermAttribute.class);
+            TypeAttribute typeAttr = tokenStream.addAttribute(TypeAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                String token = termAttr.toString();
+                String type = typeAttr.type();
+                // CJK bigrams and single characters are indexed as they are
+                boolean cjk = CJKBigramFilter.DOUBLE_TYPE.equals(type) || CJKBigramFilter.SINGLE_TYPE.equals(type);
+                Query query = cjk ? new TermQuery(new Term(ngramField, token)) : gramQuery(ngramField, token);
+                builder.add(query, BooleanClause.Occur.MUST);
+                clauses++;
+            }
+            tokenStream.end();
+        }
+
+        return clauses == 0 ? new MatchNoDocsQuery() : builder.build();
+    }
+
+    /**
+     * Query for a non-CJK token
+     * @param ngramField
+     * @param token
+     * @return
+     */
+    private static Query gramQuery(String ngramField, String token) {
+        int length = token.length();
+
+        // Shorter than the smallest gram: any gram starting with it contains it
+        if (length < NGramAnalyzer.MIN_GRAM) {
+            return new PrefixQuery(new Term(ngramField, token));
+        }
+
+        // Fits in one gram: a single term lookup
+        if (length <= NGramAnalyzer.MAX_GRAM) {
+            return new TermQuery(new Term(ngramField, token));
+        }
+
+        // Longer than the largest gram: all overlapping max-length grams must be present
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        int step = NGramAnalyzer.MAX_GRAM - 1;
+        for (int start = 0; ; start += step) {
+            int end = Math.min(start + NGramAnalyzer.MAX_GRAM, length);
+            String gram = token.substring(end - NGramAnalyzer.MAX_GRAM, end);
+            builder.add(new TermQuery(new Term(ngramField, gram)), BooleanClause.Occur.MUST);
+            if (end == length) {
+                break;
+            }
+        }
+        return builder.build();
+    }
+}
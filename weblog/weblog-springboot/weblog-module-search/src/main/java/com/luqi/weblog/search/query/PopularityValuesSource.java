@@ -0,0 +1,90 @@
+package com.luqi.weblog.search.query;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.search.DoubleValues;
+import org.apache.lucene.search.DoubleValuesSource;
+import org.apache.lucene.search.IndexSearcher;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Popularity multiplier of a document, {@code 1 + weight * ln(1 + value)} of a numeric DocValues field
+ * (e.g. the read count). The logarithm keeps a few very popular articles from burying the more relevant ones,
+ * documents without a value get a multiplier of 1.
+ * Values are read per hit from the doc values, so they may be updated in place without re-indexing.
+ **/
+public final class PopularityValuesSource extends DoubleValuesSource {
+
+    private final String field;
+
+    private final float weight;
+
+    public PopularityValuesSource(String field, float weight) {
+        this.field = field;
+        this.weight = weight;
+    }
+
+    @Override
+    public DoubleValues getValues(LeafReaderContext ctx, DoubleValues scores) throws IOException {
+        NumericDocValues values = DocValues.getNumeric(ctx.reader(), field);
+        return new DoubleValues() {
+
+            private double value;
+
+            @Override
+            public double doubleValue() {
+                return value;
+            }
+
+            @Override
+            public boolean advanceExact(int doc) throws IOException {
+                long popularity = values.advanceExact(doc) ? Math.max(0L, values.longValue()) : 0L;
+                value = 1 + weight * Math.log1p(popularity);
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public boolean needsScores() {
+        return false;
+    }
+
+    @Override
+    public DoubleValuesSource rewrite(IndexSearcher reader) {
+        return this;
+    }
+
+    @Override
+    public boolean isCacheable(LeafReaderContext ctx) {
+        // Not cacheable once the field of the segment was updated in place
+        return DocValues.isCacheable(ctx, field);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PopularityValuesSource that = (PopularityValuesSource) o;
+        return Float.compare(that.weight, weight) == 0 && field.equals(that.field);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, weight);
+    }
+
+    @Override
+    public String toString() {
+        return "popularity(" + field + ", weight=" + weight + ")";
+    }
+}
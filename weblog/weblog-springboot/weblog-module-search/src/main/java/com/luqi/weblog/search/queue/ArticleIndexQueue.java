@@ -0,0 +1,285 @@
+package com.luqi.weblog.search.queue;
+
+import com.google.common.collect.Lists;
+import com.luqi.weblog.common.domain.dos.ArticleDO;
+import com.luqi.weblog.common.domain.mapper.ArticleMapper;
+import com.luqi.weblog.search.LuceneHelper;
+import com.luqi.weblog.search.config.LuceneProperties;
+import com.luqi.weblog.search.engine.LuceneIndexEngine;
+import com.luqi.weblog.search.index.ArticleIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.Term;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Single-writer queue of article index changes.
+ * Pending changes are coalesced per article ID (the last write wins) and applied in batches by one thread,
+ * each batch is made searchable right away through an NRT refresh,
+ * while the commit (fsync) only happens every few seconds or once enough changes have piled up.
+ * A storm of edits therefore costs one commit instead of one per event.
+ * Read counts take a cheaper path: articles read during a window of minutes are collected, their counts are read back
+ * from the database in one query and written in place into the numeric doc values, no document is re-indexed.
+ * Changes not yet committed when the process dies are picked up by the startup sync (see ArticleIndexSynchronizer).
+ **/
+@Component
+@Slf4j
+public class ArticleIndexQueue {
+
+    /**
+     * Maximum number of articles whose read counts are read back in one query
+     */
+    private static final int READ_NUM_BATCH_SIZE = 500;
+
+    @Autowired
+    private LuceneHelper luceneHelper;
+    @Autowired
+    private ArticleMapper articleMapper;
+
+    private final long flushDelayMillis;
+    private final long readNumFlushDelayMillis;
+    private final long commitIntervalMillis;
+    private final int commitMaxOps;
+
+    /**
+     * Pending changes keyed by article ID, a new change replaces the pending one of the same article
+     */
+    private final Map<Long, PendingChange> pending = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    /**
+     * Articles whose read count changed since the last read count batch
+     */
+    private final Set<Long> pendingReadNums = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean readNumFlushScheduled = new AtomicBoolean();
+
+    private final ScheduledExecutorService writerExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "LuceneIndexQueue");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Only accessed by the writer thread
+    private int uncommittedOps;
+    private long lastCommitTime = System.currentTimeMillis();
+    private boolean commitScheduled;
+
+    @Autowired
+    public ArticleIndexQueue(LuceneProperties properties) {
+        this.flushDelayMillis = properties.getQueueFlushDelayMillis();
+        this.readNumFlushDelayMillis = properties.getReadNumFlushDelayMillis();
+        this.commitIntervalMillis = properties.getQueueCommitIntervalMillis();
+        this.commitMaxOps = Math.max(1, properties.getQueueCommitMaxOps());
+    }
+
+    /**
+     * Add or replace the document of an article
+     * @param articleId
+     * @param document
+     * @return Completed once the change is searchable
+     */
+    public CompletableFuture<Void> upsert(Long articleId, Document document) {
+        return enqueue(articleId, document);
+    }
+
+    /**
+     * Delete the document of an article
+     * @param articleId
+     * @return Completed once the deletion is searchable
+     */
+    public CompletableFuture<Void> delete(Long articleId) {
+        return enqueue(articleId, null);
+    }
+
+    /**
+     * Record that the read count of an article changed. The count is read back from the database
+     * and written into the index with the next read count batch
+     * @param articleId
+     */
+    public void readNumChanged(Long articleId) {
+        pendingReadNums.add(articleId);
+        if (readNumFlushScheduled.compareAndSet(false, true)) {
+            writerExecutor.schedule(this::flushReadNums, readNumFlushDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Apply the pending changes and commit them, then stop the writer thread
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        try {
+            writerExecutor.submit(() -> {
+                flush();
+                flushReadNums();
+                if (uncommittedOps > 0) {
+                    commit();
+                }
+                return null;
+            }).get(30, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            log.error("==> Failed to flush the article index queue on shutdown: ", e);
+        } finally {
+            writerExecutor.shutdownNow();
+            writerExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private CompletableFuture<Void> enqueue(Long articleId, Document document) {
+        // Callers of a replaced change share its future, it completes when the latest change is applied
+        PendingChange change = pending.compute(articleId, (id, previous) ->
+                new PendingChange(document, Objects.isNull(previous) ? new CompletableFuture<>() : previous.future));
+        if (flushScheduled.compareAndSet(false, true)) {
+            writerExecutor.schedule(this::flush, flushDelayMillis, TimeUnit.MILLISECONDS);
+        }
+        return change.future;
+    }
+
+    /**
+     * Apply all pending changes, refresh, and commit if the policy says so
+     */
+    private void flush() {
+        flushScheduled.set(false);
+
+        List<Long> articleIds = new ArrayList<>(pending.keySet());
+        List<PendingChange> batch = new ArrayList<>(articleIds.size());
+        List<Long> batchIds = new ArrayList<>(articleIds.size());
+        for (Long articleId : articleIds) {
+            PendingChange change = pending.remove(articleId);
+            if (Objects.nonNull(change)) {
+                batchIds.add(articleId);
+                batch.add(change);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            LuceneIndexEngine engine = luceneHelper.getEngine(ArticleIndex.NAME);
+            for (int i = 0; i < batch.size(); i++) {
+                Term term = new Term(ArticleIndex.COLUMN_ID, String.valueOf(batchIds.get(i)));
+                Document document = batch.get(i).document;
+                if (Objects.isNull(document)) {
+                    engine.deleteDocuments(term);
+                } else {
+                    engine.updateDocument(term, document);
+                }
+            }
+            uncommittedOps += batch.size();
+
+            if (uncommittedOps >= commitMaxOps || System.currentTimeMillis() - lastCommitTime >= commitIntervalMillis) {
+                commit();
+            } else {
+                engine.refresh();
+                scheduleCommit();
+            }
+            log.info("==> Applied {} queued article index changes, uncommitted: {}", batch.size(), uncommittedOps);
+            batch.forEach(change -> change.future.complete(null));
+        } catch (Exception e) {
+            log.error("==> Failed to apply queued article index changes, articleIds: {}", batchIds, e);
+            batch.forEach(change -> change.future.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Write the current read counts of the pending articles into the index as in-place doc values updates.
+     * No refresh is forced, the background reopen makes the new counts searchable within the refresh interval.
+     * That reopen still replaces the searcher and drops the result cache of the index, which is why batches
+     * are minutes apart (see readNumFlushDelayMillis) rather than following every read
+     */
+    private void flushReadNums() {
+        readNumFlushScheduled.set(false);
+
+        List<Long> articleIds = new ArrayList<>(pendingReadNums);
+        pendingReadNums.removeAll(articleIds);
+        if (articleIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            LuceneIndexEngine engine = luceneHelper.getEngine(ArticleIndex.NAME);
+            int updated = 0;
+            for (List<Long> batchIds : Lists.partition(articleIds, READ_NUM_BATCH_SIZE)) {
+                for (ArticleDO articleDO : articleMapper.selectReadNums(batchIds)) {
+                    // Articles no longer in the index match no document, the update is a no-op
+                    engine.updateNumericDocValue(new Term(ArticleIndex.COLUMN_ID, String.valueOf(articleDO.getId())),
+                            ArticleIndex.COLUMN_READ_NUM, Objects.isNull(articleDO.getReadNum()) ? 0L : articleDO.getReadNum());
+                    updated++;
+                }
+            }
+            uncommittedOps += updated;
+
+            if (uncommittedOps >= commitMaxOps) {
+                commit();
+            } else {
+                scheduleCommit();
+            }
+            log.info("==> Updated {} article read counts in the index, uncommitted: {}", updated, uncommittedOps);
+        } catch (Exception e) {
+            // Counts lost here are corrected by the next read of the article or by the startup sync
+            log.error("==> Failed to update article read counts in the index, articleIds: {}", articleIds, e);
+        }
+    }
+
+    private void scheduleCommit() {
+        if (commitScheduled) {
+            return;
+        }
+        commitScheduled = true;
+        long delay = Math.max(0, lastCommitTime + commitIntervalMillis - System.currentTimeMillis());
+        writerExecutor.schedule(() -> {
+            commitScheduled = false;
+            if (uncommittedOps == 0) {
+                return;
+            }
+            try {
+                commit();
+            } catch (Exception e) {
+                log.error("==> Failed to commit the article index: ", e);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void commit() throws IOException {
+        luceneHelper.getEngine(ArticleIndex.NAME).commit();
+        log.info("==> Committed {} article index changes", uncommittedOps);
+        uncommittedOps = 0;
+        lastCommitTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Latest pending change of an article, a null document means delete
+     */
+    private static final class PendingChange {
+
+        private final Document document;
+        private final CompletableFuture<Void> future;
+
+        private PendingChange(Document document, CompletableFuture<Void> future) {
+            this.document = document;
+            this.future = future;
+        }
+    }
+}
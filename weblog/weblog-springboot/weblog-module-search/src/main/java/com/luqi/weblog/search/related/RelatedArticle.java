@@ -0,0 +1,36 @@
+package com.luqi.weblog.search.related;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Related article of an article, read from the stored fields of the index (or the article summary cache for a lean index)
+ **/
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RelatedArticle {
+    /**
+     * Article ID
+     */
+    private Long id;
+    /**
+     * Article title
+     */
+    private String title;
+    /**
+     * Article cover
+     */
+    private String cover;
+    /**
+     * Publication time
+     */
+    private LocalDateTime createTime;
+}
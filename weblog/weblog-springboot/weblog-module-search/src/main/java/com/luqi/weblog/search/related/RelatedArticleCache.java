@@ -0,0 +1,282 @@
+package com.luqi.weblog.search.related;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.luqi.weblog.common.constant.Constants;
+import com.luqi.weblog.search.LuceneHelper;
+import com.luqi.weblog.search.config.LuceneProperties;
+import com.luqi.weblog.search.engine.LuceneIndexEngine;
+import com.luqi.weblog.search.index.ArticleIndex;
+import com.luqi.weblog.search.summary.ArticleSummary;
+import com.luqi.weblog.search.summary.ArticleSummaryCache;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queries.mlt.MoreLikeThis;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Per-article cache of related articles, computed with MoreLikeThis over the term vectors
+ * of title, summary and content.
+ * Reads never run a similarity query: a miss returns nothing and schedules the computation.
+ * Publish / update / delete events recompute the changed article and the cached articles around it
+ * on a single background thread.
+ **/
+@Component
+@Slf4j
+public class RelatedArticleCache {
+
+    /**
+     * Fields the similarity is computed over
+     */
+    private static final String[] SIMILARITY_FIELDS = {
+            ArticleIndex.COLUMN_TITLE, ArticleIndex.COLUMN_SUMMARY, ArticleIndex.COLUMN_CONTENT};
+
+    /**
+     * Maximum number of terms of the generated query
+     */
+    private static final int MAX_QUERY_TERMS = 25;
+
+    /**
+     * Terms found in fewer documents cannot match any other article
+     */
+    private static final int MIN_DOC_FREQ = 2;
+
+    /**
+     * Stored fields read for each related article, the content is never loaded
+     */
+    private static final Set<String> STORED_FIELDS = new HashSet<>(Arrays.asList(
+            ArticleIndex.COLUMN_ID, ArticleIndex.COLUMN_TITLE, ArticleIndex.COLUMN_COVER, ArticleIndex.COLUMN_CREATE_TIME));
+
+    /**
+     * Stored field read for each related article of a lean index, the rest comes from the article summary cache
+     */
+    private static final Set<String> LEAN_STORED_FIELDS = Collections.singleton(ArticleIndex.COLUMN_ID);
+
+    @Autowired
+    private LuceneHelper luceneHelper;
+    @Autowired
+    private ArticleSummaryCache articleSummaryCache;
+
+    private final int size;
+
+    private final boolean leanIndex;
+
+    private final Cache<Long, List<RelatedArticle>> cache;
+
+    /**
+     * Articles waiting to be computed, a miss repeated before the computation runs is not queued twice
+     */
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "LuceneRelatedRefresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public RelatedArticleCache(LuceneProperties properties) {
+        this.size = properties.getRelatedSize();
+        this.leanIndex = properties.isLeanIndex();
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(properties.getRelatedCacheMaxSize())
+                .build();
+    }
+
+    /**
+     * Cached related articles, a miss schedules the computation and returns an empty list
+     * @param articleId
+     * @return
+     */
+    public List<RelatedArticle> get(Long articleId) {
+        List<RelatedArticle> related = cache.getIfPresent(articleId);
+        if (Objects.isNull(related)) {
+            schedule(articleId);
+            return Collections.emptyList();
+        }
+        return related;
+    }
+
+    /**
+     * Recompute an article after it was published or updated, together with the cached articles
+     * that list it or that it now lists (their ranking may have changed)
+     * @param articleId
+     */
+    public void refresh(Long articleId) {
+        refreshExecutor.execute(() -> {
+            try {
+                Set<Long> affected = referencing(articleId);
+                compute(articleId).stream()
+                        .map(RelatedArticle::getId)
+                        .filter(id -> Objects.nonNull(cache.getIfPresent(id)))
+                        .forEach(affected::add);
+                affected.forEach(this::schedule);
+            } catch (Exception e) {
+                log.error("==> Failed to refresh related articles, articleId: {}", articleId, e);
+            }
+        });
+    }
+
+    /**
+     * Drop a deleted article and recompute the cached articles that list it
+     * @param articleId
+     */
+    public void remove(Long articleId) {
+        cache.invalidate(articleId);
+        refreshExecutor.execute(() -> referencing(articleId).forEach(this::schedule));
+    }
+
+    /**
+     * Drop all entries (e.g. after the index was rebuilt), they are recomputed on the next read
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        refreshExecutor.shutdownNow();
+        refreshExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void schedule(Long articleId) {
+        if (pending.add(articleId)) {
+            refreshExecutor.execute(() -> {
+                pending.remove(articleId);
+                try {
+                    compute(articleId);
+                } catch (Exception e) {
+                    log.error("==> Failed to compute related articles, articleId: {}", articleId, e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Cached articles whose related list contains the article
+     * @param articleId
+     * @return
+     */
+    private Set<Long> referencing(Long articleId) {
+        Set<Long> ids = new HashSet<>();
+        cache.asMap().forEach((id, related) -> {
+            if (related.stream().anyMatch(article -> articleId.equals(article.getId()))) {
+                ids.add(id);
+            }
+        });
+        return ids;
+    }
+
+    /**
+     * Run MoreLikeThis for the article and cache the result.
+     * Articles not (yet) in the index are not cached, the next read retries
+     * @param articleId
+     * @return
+     * @throws IOException
+     */
+    private List<RelatedArticle> compute(Long articleId) throws IOException {
+        LuceneIndexEngine engine = luceneHelper.getEngine(ArticleIndex.NAME);
+        IndexSearcher searcher = engine.acquire();
+        try {
+            Term idTerm = new Term(ArticleIndex.COLUMN_ID, String.valueOf(articleId));
+            TopDocs self = searcher.search(new TermQuery(idTerm), 1);
+            if (self.scoreDocs.length == 0) {
+                cache.invalidate(articleId);
+                return Collections.emptyList();
+            }
+
+            // Terms are read from the term vectors of the document, no re-analysis of the stored text
+            MoreLikeThis moreLikeThis = new MoreLikeThis(searcher.getIndexReader());
+            moreLikeThis.setFieldNames(SIMILARITY_FIELDS);
+            moreLikeThis.setAnalyzer(engine.getAnalyzer());
+            moreLikeThis.setMinTermFreq(1);
+            moreLikeThis.setMinDocFreq(MIN_DOC_FREQ);
+            moreLikeThis.setMaxQueryTerms(MAX_QUERY_TERMS);
+            Query like = moreLikeThis.like(self.scoreDocs[0].doc);
+
+            Query query = new BooleanQuery.Builder()
+                    .add(like, BooleanClause.Occur.SHOULD)
+                    .add(new TermQuery(idTerm), BooleanClause.Occur.MUST_NOT)
+                    .build();
+
+            ScoreDoc[] scoreDocs = searcher.search(query, size).scoreDocs;
+            List<RelatedArticle> related = Collections.unmodifiableList(leanIndex
+                    ? hydrate(searcher, scoreDocs) : toRelatedArticles(searcher, scoreDocs));
+            cache.put(articleId, related);
+            return related;
+        } finally {
+            engine.release(searcher);
+        }
+    }
+
+    private static List<RelatedArticle> toRelatedArticles(IndexSearcher searcher, ScoreDoc[] scoreDocs) throws IOException {
+        List<RelatedArticle> related = new ArrayList<>(scoreDocs.length);
+        for (ScoreDoc scoreDoc : scoreDocs) {
+            related.add(toRelatedArticle(searcher.doc(scoreDoc.doc, STORED_FIELDS)));
+        }
+        return related;
+    }
+
+    /**
+     * Assemble the related articles of a lean index from the article summary cache, in one batch lookup.
+     * Articles no longer in the database are skipped
+     */
+    private List<RelatedArticle> hydrate(IndexSearcher searcher, ScoreDoc[] scoreDocs) throws IOException {
+        List<Long> ids = new ArrayList<>(scoreDocs.length);
+        for (ScoreDoc scoreDoc : scoreDocs) {
+            ids.add(Long.valueOf(searcher.doc(scoreDoc.doc, LEAN_STORED_FIELDS).get(ArticleIndex.COLUMN_ID)));
+        }
+        Map<Long, ArticleSummary> summaries = articleSummaryCache.getAll(ids);
+
+        List<RelatedArticle> related = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ArticleSummary summary = summaries.get(id);
+            if (Objects.nonNull(summary)) {
+                related.add(RelatedArticle.builder()
+                        .id(id)
+                        .title(summary.getTitle())
+                        .cover(summary.getCover())
+                        .createTime(summary.getCreateTime())
+                        .build());
+            }
+        }
+        return related;
+    }
+
+    private static RelatedArticle toRelatedArticle(Document document) {
+        String createTime = document.get(ArticleIndex.COLUMN_CREATE_TIME);
+        return RelatedArticle.builder()
+                .id(Long.valueOf(document.get(ArticleIndex.COLUMN_ID)))
+                .title(document.get(ArticleIndex.COLUMN_TITLE))
+                .cover(document.get(ArticleIndex.COLUMN_COVER))
+                .createTime(Objects.isNull(createTime) ? null : LocalDateTime.parse(createTime, Constants.DATE_TIME_FORMATTER))
+                .build();
+    }
+}
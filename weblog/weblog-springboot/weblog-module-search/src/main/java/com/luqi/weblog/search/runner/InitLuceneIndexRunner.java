@@ -1,25 +1,17 @@
 package com.luqi.weblog.search.runner;
 
-import com.baomidou.mybatisplus.core.toolkit.StringUtils;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
-import com.google.common.collect.Lists;
-import com.luqi.weblog.common.constant.Constants;
-import com.luqi.weblog.common.domain.dos.ArticleContentDO;
 import com.luqi.weblog.common.domain.dos.ArticleDO;
-import com.luqi.weblog.common.domain.mapper.ArticleContentMapper;
 import com.luqi.weblog.common.domain.mapper.ArticleMapper;
-import com.luqi.weblog.search.LuceneHelper;
-import com.luqi.weblog.search.config.LuceneProperties;
-import com.luqi.weblog.search.index.ArticleIndex;
+import com.luqi.weblog.common.domain.mapper.TagMapper;
+import com.luqi.weblog.search.suggest.ArticleSuggester;
+import com.luqi.weblog.search.sync.ArticleIndexSynchronizer;
+import com.luqi.weblog.search.warmup.SearchWarmer;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.lucene.document.Document;
-import org.apache.lucene.document.Field;
-import org.apache.lucene.document.TextField;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
 import java.util.List;
 
 
@@ -28,56 +20,35 @@ import java.util.List;
 public class InitLuceneIndexRunner implements CommandLineRunner {
 
     @Autowired
-    private LuceneProperties luceneProperties;
+    private ArticleMapper articleMapper;
     @Autowired
-    private LuceneHelper luceneHelper;
+    private TagMapper tagMapper;
     @Autowired
-    private ArticleMapper articleMapper;
+    private ArticleIndexSynchronizer articleIndexSynchronizer;
     @Autowired
-    private ArticleContentMapper articleContentMapper;
+    private ArticleSuggester articleSuggester;
+    @Autowired
+    private SearchWarmer searchWarmer;
 
     @Override
     public void run(String... args) throws Exception {
         log.info("==> 开始初始化 Lucene 索引...");
 
-        // 查询所有文章
-        List<ArticleDO> articleDOS = articleMapper.selectList(Wrappers.emptyWrapper());
+        // 查询所有文章（仅 ID、标题与阅读量，不读取正文）
+        List<ArticleDO> articleDOS = articleMapper.selectAllTitles();
 
-        // 未发布文章，则不创建 lucene 索引
-        if (articleDOS.isEmpty()) {
-            log.info("==> 未发布任何文章，暂不创建 Lucene 索引...");
-            return;
+        // 按索引中记录的同步水位线增量对账，只重建新增、更新的文章并删除已不存在的文章，阅读量原地更新
+        try {
+            articleIndexSynchronizer.sync(articleDOS);
+        } catch (Exception e) {
+            log.error("==> 同步 Lucene 索引失败: ", e);
         }
 
-        // 若配置文件中未配置索引存放目录，日志提示错误信息
-        if (StringUtils.isBlank(luceneProperties.getIndexDir())) {
-            log.error("==> 未指定 Lucene 索引存放位置，需在 application.yml 文件中添加路径配置...");
-            return;
-        }
-
-        // 文章索引存放目录， 如 /app/weblog/lucene-index/article
-        String articleIndexDir = luceneProperties.getIndexDir() + File.separator + ArticleIndex.NAME;
-
-        List<Document> documents = Lists.newArrayList();
-        articleDOS.forEach(articleDO -> {
-            Long articleId = articleDO.getId();
-
-            // 查询文章正文
-            ArticleContentDO articleContentDO = articleContentMapper.selectByArticleId(articleId);
-            // 构建文档
-            Document document = new Document();
-            // 设置文档字段 Field
-            document.add(new TextField(ArticleIndex.COLUMN_ID, String.valueOf(articleId), Field.Store.YES));
-            document.add(new TextField(ArticleIndex.COLUMN_TITLE, articleDO.getTitle(), Field.Store.YES));
-            document.add(new TextField(ArticleIndex.COLUMN_COVER, articleDO.getCover(), Field.Store.YES));
-            document.add(new TextField(ArticleIndex.COLUMN_SUMMARY, articleDO.getSummary(), Field.Store.YES));
-            document.add(new TextField(ArticleIndex.COLUMN_CONTENT, articleContentDO.getContent(), Field.Store.YES));
-            document.add(new TextField(ArticleIndex.COLUMN_CREATE_TIME, Constants.DATE_TIME_FORMATTER.format(articleDO.getCreateTime()), Field.Store.YES));
-            documents.add(document);
-        });
+        // 构建搜索联想词典（文章标题 + 标签名）
+        articleSuggester.reload(articleDOS, tagMapper.selectList(Wrappers.emptyWrapper()));
 
-        // 创建索引
-        luceneHelper.createIndex(articleIndexDir, documents);
+        // 预热搜索器（词典、列存与上次运行的热门查询），启动完成前执行，首批搜索不再承担冷启动开销
+        searchWarmer.warmUp();
 
         log.info("==> 结束初始化 Lucene 索引...");
     }
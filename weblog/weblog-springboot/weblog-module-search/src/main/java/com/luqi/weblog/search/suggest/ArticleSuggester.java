@@ -0,0 +1,385 @@
+package com.luqi.weblog.search.suggest;
+
+import com.baomidou.mybatisplus.core.toolkit.StringUtils;
+import com.luqi.weblog.common.domain.dos.ArticleDO;
+import com.luqi.weblog.common.domain.dos.TagDO;
+import com.luqi.weblog.search.analyzer.SuggestAnalyzer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.search.suggest.InputIterator;
+import org.apache.lucene.search.suggest.Lookup;
+import org.apache.lucene.search.suggest.analyzing.AnalyzingSuggester;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: In-memory search-as-you-type suggester over article titles and tag names.
+ * Suggestions live in an FST (AnalyzingSuggester), every title is also keyed by its suffixes starting
+ * at word / CJK character boundaries, so typing the middle of a title matches too.
+ * The FST is immutable: changes update the in-memory entries and trigger a coalesced background rebuild,
+ * lookups keep using the previous FST until the new one is swapped in.
+ **/
+@Component
+@Slf4j
+public class ArticleSuggester {
+
+    /**
+     * Maximum number of lookup keys (the text itself and its infix suffixes) of one suggestion
+     */
+    private static final int MAX_KEYS_PER_SUGGESTION = 32;
+
+    /**
+     * Maximum length of one lookup key (characters)
+     */
+    private static final int MAX_KEY_LENGTH = 64;
+
+    /**
+     * Weight bonus of the key starting at the beginning of the text, prefix matches rank above infix matches.
+     * AnalyzingSuggester only accepts weights in the int range
+     */
+    private static final long PREFIX_BONUS = 1L << 30;
+
+    /**
+     * Candidates fetched per requested suggestion, several infix keys of one suggestion may match
+     */
+    private static final int OVERFETCH = 4;
+
+    /**
+     * Article suggestions, keyed by article ID
+     */
+    private final Map<Long, Suggestion> articles = new ConcurrentHashMap<>();
+
+    /**
+     * Tag suggestions, keyed by tag ID, replaced as a whole
+     */
+    private volatile Map<Long, Suggestion> tags = Collections.emptyMap();
+
+    /**
+     * FST currently used by lookups
+     */
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "LuceneSuggestRebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Analyzer analyzer = new SuggestAnalyzer();
+
+    /**
+     * Replace all suggestions
+     * @param articleDOS All articles
+     * @param tagDOS All tags
+     */
+    public void reload(List<ArticleDO> articleDOS, List<TagDO> tagDOS) {
+        articles.clear();
+        articleDOS.forEach(articleDO -> articles.put(articleDO.getId(), toSuggestion(articleDO)));
+        tags = toSuggestions(tagDOS);
+        scheduleRebuild();
+    }
+
+    /**
+     * Add or replace the suggestion of an article
+     * @param articleDO
+     */
+    public void upsertArticle(ArticleDO articleDO) {
+        if (Objects.isNull(articleDO)) {
+            return;
+        }
+        articles.put(articleDO.getId(), toSuggestion(articleDO));
+        scheduleRebuild();
+    }
+
+    /**
+     * Remove the suggestion of an article
+     * @param articleId
+     */
+    public void removeArticle(Long articleId) {
+        if (articles.remove(articleId) != null) {
+            scheduleRebuild();
+        }
+    }
+
+    /**
+     * Replace all tag suggestions, tags without articles are not suggested
+     * @param tagDOS
+     */
+    public void reloadTags(List<TagDO> tagDOS) {
+        tags = toSuggestions(tagDOS);
+        scheduleRebuild();
+    }
+
+    /**
+     * Prefix / infix lookup, answered from the in-memory FST only
+     * @param word Typed text
+     * @param size Maximum number of suggestions
+     * @return Suggestions, prefix matches first, then by popularity
+     */
+    public List<Suggestion> lookup(String word, int size) {
+        String key = normalize(word);
+        Snapshot current = snapshot;
+        if (StringUtils.isBlank(key) || current.lookup == null || size <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<Lookup.LookupResult> results = current.lookup.lookup(key, null, false, size * OVERFETCH);
+
+        // Several keys of one suggestion may match, keep the best ranked one
+        Set<Integer> seen = new HashSet<>();
+        List<Suggestion> suggestions = new ArrayList<>(size);
+        for (Lookup.LookupResult result : results) {
+            int ordinal = decodeOrdinal(result.payload);
+            if (seen.add(ordinal)) {
+                suggestions.add(current.suggestions[ordinal]);
+                if (suggestions.size() == size) {
+                    break;
+                }
+            }
+        }
+        return suggestions;
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        rebuildExecutor.shutdownNow();
+        rebuildExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        analyzer.close();
+    }
+
+    /**
+     * Rebuild in the background, changes arriving while a rebuild is pending are folded into it
+     */
+    private void scheduleRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                rebuildPending.set(false);
+                try {
+                    rebuild();
+                } catch (Exception e) {
+                    log.error("==> Failed to rebuild suggest dictionary: ", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Build a new FST from the current entries and swap it in
+     * @throws IOException
+     */
+    private void rebuild() throws IOException {
+        long startTime = System.currentTimeMillis();
+
+        List<Suggestion> suggestions = new ArrayList<>(articles.values());
+        suggestions.addAll(tags.values());
+        if (suggestions.isEmpty()) {
+            snapshot = Snapshot.EMPTY;
+            return;
+        }
+
+        KeyIterator keys = new KeyIterator();
+        for (int ordinal = 0; ordinal < suggestions.size(); ordinal++) {
+            Suggestion suggestion = suggestions.get(ordinal);
+            long popularity = Math.min(Math.max(suggestion.getWeight(), 0), PREFIX_BONUS - 1);
+            List<String> texts = keysOf(suggestion.getText());
+            for (int i = 0; i < texts.size(); i++) {
+                keys.add(texts.get(i), i == 0 ? PREFIX_BONUS + popularity : popularity, ordinal);
+            }
+        }
+
+        // Offline sorting of the build only needs a scratch directory, keep it in memory
+        AnalyzingSuggester lookup;
+        try (Directory tempDir = new ByteBuffersDirectory()) {
+            lookup = new AnalyzingSuggester(tempDir, "suggest", analyzer, analyzer,
+                    AnalyzingSuggester.EXACT_FIRST | AnalyzingSuggester.PRESERVE_SEP, 256, -1, false);
+            lookup.build(keys);
+        }
+
+        snapshot = new Snapshot(lookup, suggestions.toArray(new Suggestion[0]));
+
+        log.info("==> Suggest dictionary rebuilt, suggestions: {}, keys: {}, ramBytes: {}, took: {}ms",
+                suggestions.size(), keys.size(), lookup.ramBytesUsed(), System.currentTimeMillis() - startTime);
+    }
+
+    private static Suggestion toSuggestion(ArticleDO articleDO) {
+        return Suggestion.builder()
+                .type(Suggestion.Type.ARTICLE)
+                .id(articleDO.getId())
+                .text(articleDO.getTitle())
+                .weight(Objects.isNull(articleDO.getReadNum()) ? 0 : articleDO.getReadNum())
+                .build();
+    }
+
+    private static Map<Long, Suggestion> toSuggestions(List<TagDO> tagDOS) {
+        return tagDOS.stream()
+                .filter(tagDO -> StringUtils.isNotBlank(tagDO.getName())
+                        && Objects.nonNull(tagDO.getArticlesTotal()) && tagDO.getArticlesTotal() > 0)
+                .map(tagDO -> Suggestion.builder()
+                        .type(Suggestion.Type.TAG)
+                        .id(tagDO.getId())
+                        .text(tagDO.getName())
+                        .weight(tagDO.getArticlesTotal())
+                        .build())
+                .collect(Collectors.toMap(Suggestion::getId, Function.identity(), (a, b) -> b));
+    }
+
+    /**
+     * Lookup keys of a text: the whole text, then every suffix starting at a word or CJK character boundary
+     * @param text
+     * @return
+     */
+    private static List<String> keysOf(String text) {
+        String normalized = normalize(text);
+        List<String> keys = new ArrayList<>();
+        if (StringUtils.isBlank(normalized)) {
+            return keys;
+        }
+        keys.add(truncate(normalized));
+
+        for (int i = Character.charCount(normalized.codePointAt(0));
+             i < normalized.length() && keys.size() < MAX_KEYS_PER_SUGGESTION;
+             i += Character.charCount(normalized.codePointAt(i))) {
+            int codePoint = normalized.codePointAt(i);
+            if (!Character.isLetterOrDigit(codePoint)) {
+                continue;
+            }
+            int previous = normalized.codePointBefore(i);
+            if (isCjk(codePoint) || isCjk(previous) || !Character.isLetterOrDigit(previous)) {
+                keys.add(truncate(normalized.substring(i)));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Trim, collapse whitespace and drop control characters (some of them are reserved by the suggester)
+     * @param text
+     * @return
+     */
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder(text.length());
+        text.codePoints()
+                .map(codePoint -> Character.isWhitespace(codePoint) ? ' ' : codePoint)
+                .filter(codePoint -> !Character.isISOControl(codePoint))
+                .forEach(builder::appendCodePoint);
+        return builder.toString().trim().replaceAll(" +", " ");
+    }
+
+    private static String truncate(String key) {
+        if (key.length() <= MAX_KEY_LENGTH) {
+            return key;
+        }
+        int end = Character.isHighSurrogate(key.charAt(MAX_KEY_LENGTH - 1)) ? MAX_KEY_LENGTH - 1 : MAX_KEY_LENGTH;
+        return key.substring(0, end);
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static BytesRef encodeOrdinal(int ordinal) {
+        return new BytesRef(ByteBuffer.allocate(Integer.BYTES).putInt(ordinal).array());
+    }
+
+    private static int decodeOrdinal(BytesRef payload) {
+        return ByteBuffer.wrap(payload.bytes, payload.offset, payload.length).getInt();
+    }
+
+    /**
+     * FST together with the suggestions its payloads point to
+     */
+    private static final class Snapshot {
+
+        private static final Snapshot EMPTY = new Snapshot(null, new Suggestion[0]);
+
+        private final AnalyzingSuggester lookup;
+        private final Suggestion[] suggestions;
+
+        private Snapshot(AnalyzingSuggester lookup, Suggestion[] suggestions) {
+            this.lookup = lookup;
+            this.suggestions = suggestions;
+        }
+    }
+
+    /**
+     * Build input: lookup key, weight and the ordinal of the suggestion as payload
+     */
+    private static final class KeyIterator implements InputIterator {
+
+        private final List<String> keys = new ArrayList<>();
+        private final List<Long> weights = new ArrayList<>();
+        private final List<Integer> ordinals = new ArrayList<>();
+        private int current = -1;
+
+        private void add(String key, long weight, int ordinal) {
+            keys.add(key);
+            weights.add(weight);
+            ordinals.add(ordinal);
+        }
+
+        private int size() {
+            return keys.size();
+        }
+
+        @Override
+        public BytesRef next() {
+            return ++current < keys.size() ? new BytesRef(keys.get(current)) : null;
+        }
+
+        @Override
+        public long weight() {
+            return weights.get(current);
+        }
+
+        @Override
+        public BytesRef payload() {
+            return encodeOrdinal(ordinals.get(current));
+        }
+
+        @Override
+        public boolean hasPayloads() {
+            return true;
+        }
+
+        @Override
+        public Set<BytesRef> contexts() {
+            return null;
+        }
+
+        @Override
+        public boolean hasContexts() {
+            return false;
+        }
+    }
+}
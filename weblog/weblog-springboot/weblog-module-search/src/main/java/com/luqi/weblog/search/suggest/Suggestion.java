@@ -0,0 +1,39 @@
+package com.luqi.weblog.search.suggest;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: One search-as-you-type suggestion (an article title or a tag name)
+ **/
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class Suggestion {
+    /**
+     * Suggestion type
+     */
+    private Type type;
+    /**
+     * Article ID or tag ID
+     */
+    private Long id;
+    /**
+     * Text shown to the user (title or tag name)
+     */
+    private String text;
+    /**
+     * Popularity (article read count or tag article total)
+     */
+    private long weight;
+
+    public enum Type {
+        ARTICLE,
+        TAG
+    }
+}
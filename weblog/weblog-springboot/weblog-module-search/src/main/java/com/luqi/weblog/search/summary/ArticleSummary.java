@@ -0,0 +1,40 @@
+package com.luqi.weblog.search.summary;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: The few article columns a search hit or a related article is displayed with
+ **/
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ArticleSummary {
+    /**
+     * Article ID
+     */
+    private Long id;
+    /**
+     * Article title
+     */
+    private String title;
+    /**
+     * Article cover
+     */
+    private String cover;
+    /**
+     * Article summary
+     */
+    private String summary;
+    /**
+     * Publication time
+     */
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,93 @@
+package com.luqi.weblog.search.summary;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.luqi.weblog.common.domain.dos.ArticleDO;
+import com.luqi.weblog.common.domain.mapper.ArticleMapper;
+import com.luqi.weblog.search.config.LuceneProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: In-process cache of article summaries, used to assemble the hits of a lean index
+ * (see lucene.lean-index) which stores nothing but the article ID.
+ * A page of hits is hydrated with one batch lookup, the misses are loaded together with a single query.
+ * Publish / update events replace the cached article, delete events drop it
+ **/
+@Component
+public class ArticleSummaryCache {
+
+    @Autowired
+    private ArticleMapper articleMapper;
+
+    private final Cache<Long, ArticleSummary> cache;
+
+    @Autowired
+    public ArticleSummaryCache(LuceneProperties properties) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(properties.getSummaryCacheMaxSize())
+                .build();
+    }
+
+    /**
+     * Summaries of the given articles, the misses are loaded in one query.
+     * Articles that no longer exist (deleted but not yet removed from the index) are absent
+     * @param articleIds
+     * @return Article ID -> summary
+     */
+    public Map<Long, ArticleSummary> getAll(Collection<Long> articleIds) {
+        if (articleIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, ArticleSummary> summaries = new HashMap<>(cache.getAllPresent(articleIds));
+        List<Long> missing = articleIds.stream()
+                .filter(articleId -> !summaries.containsKey(articleId))
+                .distinct()
+                .collect(Collectors.toList());
+        if (missing.isEmpty()) {
+            return summaries;
+        }
+
+        for (ArticleDO articleDO : articleMapper.selectBatchIds(missing)) {
+            ArticleSummary summary = toSummary(articleDO);
+            cache.put(summary.getId(), summary);
+            summaries.put(summary.getId(), summary);
+        }
+        return summaries;
+    }
+
+    /**
+     * Cache the summary of an article that was just published or updated
+     * @param articleDO
+     */
+    public void put(ArticleDO articleDO) {
+        cache.put(articleDO.getId(), toSummary(articleDO));
+    }
+
+    /**
+     * Drop a deleted article
+     * @param articleId
+     */
+    public void invalidate(Long articleId) {
+        cache.invalidate(articleId);
+    }
+
+    private static ArticleSummary toSummary(ArticleDO articleDO) {
+        return ArticleSummary.builder()
+                .id(articleDO.getId())
+                .title(articleDO.getTitle())
+                .cover(articleDO.getCover())
+                .summary(articleDO.getSummary())
+                .createTime(articleDO.getCreateTime())
+                .build();
+    }
+}
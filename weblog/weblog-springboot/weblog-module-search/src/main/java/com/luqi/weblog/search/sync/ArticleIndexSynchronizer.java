@@ -0,0 +1,339 @@
+package com.luqi.weblog.search.sync;
+
+import com.google.common.collect.Lists;
+import com.luqi.weblog.common.domain.dos.ArticleContentDO;
+import com.luqi.weblog.common.domain.dos.ArticleDO;
+import com.luqi.weblog.common.domain.mapper.ArticleContentMapper;
+import com.luqi.weblog.common.domain.mapper.ArticleMapper;
+import com.luqi.weblog.search.LuceneHelper;
+import com.luqi.weblog.search.bulk.ArticleBulkIndexer;
+import com.luqi.weblog.search.bulk.BulkIndexProgress;
+import com.luqi.weblog.search.config.LuceneProperties;
+import com.luqi.weblog.search.engine.IndexRebuild;
+import com.luqi.weblog.search.engine.LuceneIndexEngine;
+import com.luqi.weblog.search.index.ArticleDocumentBuilder;
+import com.luqi.weblog.search.index.ArticleIndex;
+import com.luqi.weblog.search.index.ArticleRelationLoader;
+import com.luqi.weblog.search.index.ArticleRelations;
+import com.luqi.weblog.search.related.RelatedArticleCache;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: 启动时将文章索引与 t_article 对账。
+ * 索引每次同步后在提交数据（commit user data）中记录水位线：已同步的最大文章 ID 与最大更新时间，
+ * 重启时只重建水位线之后新增、更新的文章，并删除库中已不存在的文章，无需重新读取全部正文；
+ * 阅读量与库中不一致的文章（如上次提交前未落盘的阅读事件）只原地更新列存数值，不重建文档。
+ * 没有水位线（新索引）或索引结构版本变化时，通过 {@link ArticleBulkIndexer} 全量重建：
+ * 写入新一代索引目录，提交（带结构版本与水位线）并校验后原子切换，重建期间线上索引照常提供搜索。
+ **/
+@Component
+@Slf4j
+public class ArticleIndexSynchronizer {
+
+    /**
+     * 提交数据：索引结构版本
+     */
+    public static final String KEY_SCHEMA_VERSION = "schemaVersion";
+
+    /**
+     * 提交数据：已同步的最大文章 ID
+     */
+    public static final String KEY_SYNC_MAX_ID = "syncMaxId";
+
+    /**
+     * 提交数据：已同步的最大更新时间
+     */
+    public static final String KEY_SYNC_UPDATE_TIME = "syncUpdateTime";
+
+    /**
+     * 每次批量查询文章正文的数量
+     */
+    private static final int CONTENT_BATCH_SIZE = 500;
+
+    @Autowired
+    private LuceneHelper luceneHelper;
+    @Autowired
+    private ArticleMapper articleMapper;
+    @Autowired
+    private ArticleContentMapper articleContentMapper;
+    @Autowired
+    private ArticleBulkIndexer articleBulkIndexer;
+    @Autowired
+    private ArticleRelationLoader articleRelationLoader;
+    @Autowired
+    private RelatedArticleCache relatedArticleCache;
+    @Autowired
+    private LuceneProperties luceneProperties;
+
+    /**
+     * 同步文章索引
+     * @param articleDOS 库中现存的全部文章（ID 与阅读量）
+     * @throws IOException
+     */
+    public void sync(List<ArticleDO> articleDOS) throws IOException {
+        LuceneIndexEngine engine = luceneHelper.getEngine(ArticleIndex.NAME);
+        Map<String, String> userData = engine.getCommitUserData();
+
+        long startTime = System.currentTimeMillis();
+        if (!Objects.equals(userData.get(KEY_SCHEMA_VERSION), schemaVersion())
+                || !userData.containsKey(KEY_SYNC_MAX_ID)) {
+            log.info("==> 索引无同步水位线或结构版本已变化（{} -> {}），全量重建索引...",
+                    userData.get(KEY_SCHEMA_VERSION), schemaVersion());
+            fullSync(engine);
+        } else {
+            incrementalSync(engine, userData, articleDOS);
+        }
+        log.info("==> Lucene 索引同步完成，耗时: {}ms", System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 在后台全量重建（如后台手动触发），重建期间线上索引照常提供搜索。
+     * 重建在调用线程中原子地开始（占用索引引擎的重建标记），已有重建（包括启动时的全量同步）在进行时不会再次开始
+     * @param executor 执行重建的线程池
+     * @return 是否已开始重建，false 表示已有重建在进行
+     * @throws IOException
+     */
+    public boolean rebuild(Executor executor) throws IOException {
+        LuceneIndexEngine engine = luceneHelper.getEngine(ArticleIndex.NAME);
+        IndexRebuild rebuild = engine.tryBeginRebuild(luceneProperties.getBulkRamBufferSizeMb());
+        if (Objects.isNull(rebuild)) {
+            return false;
+        }
+
+        try {
+            executor.execute(() -> {
+                long startTime = System.currentTimeMillis();
+                try {
+                    fullSync(engine, rebuild);
+                    log.info("==> Lucene 索引全量重建完成，耗时: {}ms", System.currentTimeMillis() - startTime);
+                } catch (Exception e) {
+                    log.error("==> Lucene 索引全量重建失败: ", e);
+                }
+            });
+        } catch (RuntimeException e) {
+            // 线程池拒绝时释放重建标记
+            rebuild.abort();
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * 全量重建到新一代索引目录，校验后切换
+     * @param engine
+     * @throws IOException
+     */
+    private void fullSync(LuceneIndexEngine engine) throws IOException {
+        fullSync(engine, engine.beginRebuild(luceneProperties.getBulkRamBufferSizeMb()));
+    }
+
+    /**
+     * 写入已开始的重建，校验后切换；失败时丢弃重建
+     * @param engine
+     * @param rebuild
+     * @throws IOException
+     */
+    private void fullSync(LuceneIndexEngine engine, IndexRebuild rebuild) throws IOException {
+        try {
+            // 流式、并行写入，全部写入后连同结构版本、水位线一起提交，并校验文档数与提交数据
+            BulkIndexProgress progress = articleBulkIndexer.reindex(rebuild);
+            Map<String, String> userData = watermark(progress.getMaxId(), progress.getMaxUpdateTime());
+            rebuild.commit(userData);
+            rebuild.verify(progress.getIndexed(), userData);
+        } catch (IOException | RuntimeException e) {
+            // 重建失败时丢弃新一代索引，线上索引不受影响
+            rebuild.abort();
+            throw e;
+        }
+
+        // 原子切换，搜索结果缓存随切换失效；相关文章按新索引重新计算
+        engine.swap(rebuild);
+        relatedArticleCache.invalidateAll();
+
+        // 重建期间的文章变更与阅读量写入的是旧一代索引，切换后按水位线与库中阅读量补齐
+        incrementalSync(engine, engine.getCommitUserData(), articleMapper.selectAllTitles());
+    }
+
+    /**
+     * 增量对账
+     * @param engine
+     * @param userData 上次同步的提交数据
+     * @param articleDOS 库中现存的全部文章（ID 与阅读量）
+     * @throws IOException
+     */
+    private void incrementalSync(LuceneIndexEngine engine, Map<String, String> userData, List<ArticleDO> articleDOS) throws IOException {
+        long maxId = Long.parseLong(userData.get(KEY_SYNC_MAX_ID));
+        String updateTimeValue = userData.get(KEY_SYNC_UPDATE_TIME);
+        LocalDateTime updateTime = Objects.isNull(updateTimeValue) ? null : LocalDateTime.parse(updateTimeValue);
+
+        Set<Long> articleIds = articleDOS.stream().map(ArticleDO::getId).collect(Collectors.toSet());
+        Map<Long, Long> indexedReadNums = readIndexedReadNums(engine);
+        Set<Long> indexedIds = indexedReadNums.keySet();
+
+        // 水位线之后新增、更新的文章
+        List<ArticleDO> changedArticleDOS = articleMapper.selectChangedSince(maxId, updateTime);
+        Set<Long> changedIds = changedArticleDOS.stream().map(ArticleDO::getId).collect(Collectors.toSet());
+
+        // 索引中缺失的文章（如事件处理失败），一并补齐
+        List<Long> missingIds = articleIds.stream()
+                .filter(articleId -> !indexedIds.contains(articleId) && !changedIds.contains(articleId))
+                .collect(Collectors.toList());
+        if (!missingIds.isEmpty()) {
+            changedArticleDOS.addAll(articleMapper.selectBatchIds(missingIds));
+        }
+
+        // 库中已删除的文章
+        List<Long> deletedIds = indexedIds.stream()
+                .filter(articleId -> !articleIds.contains(articleId))
+                .collect(Collectors.toList());
+
+        // 阅读量与库中不一致的文章（重建的文章已带最新阅读量）
+        List<ArticleDO> readNumChangedDOS = articleDOS.stream()
+                .filter(articleDO -> indexedIds.contains(articleDO.getId()) && !changedIds.contains(articleDO.getId())
+                        && !Objects.equals(indexedReadNums.get(articleDO.getId()), readNumOf(articleDO)))
+                .collect(Collectors.toList());
+
+        if (changedArticleDOS.isEmpty() && deletedIds.isEmpty() && readNumChangedDOS.isEmpty()) {
+            log.info("==> 索引已是最新，无需同步，水位线: maxId={}, updateTime={}", maxId, updateTime);
+            return;
+        }
+
+        for (Document document : buildDocuments(changedArticleDOS)) {
+            engine.updateDocument(new Term(ArticleIndex.COLUMN_ID, document.get(ArticleIndex.COLUMN_ID)), document);
+        }
+        for (Long articleId : deletedIds) {
+            engine.deleteDocuments(new Term(ArticleIndex.COLUMN_ID, String.valueOf(articleId)));
+        }
+        for (ArticleDO articleDO : readNumChangedDOS) {
+            engine.updateNumericDocValue(new Term(ArticleIndex.COLUMN_ID, String.valueOf(articleDO.getId())),
+                    ArticleIndex.COLUMN_READ_NUM, readNumOf(articleDO));
+        }
+        for (ArticleDO articleDO : changedArticleDOS) {
+            maxId = Math.max(maxId, articleDO.getId());
+            LocalDateTime articleUpdateTime = articleDO.getUpdateTime();
+            if (Objects.nonNull(articleUpdateTime) && (Objects.isNull(updateTime) || articleUpdateTime.isAfter(updateTime))) {
+                updateTime = articleUpdateTime;
+            }
+        }
+        engine.commit(watermark(maxId, updateTime));
+
+        log.info("==> 增量同步索引，新增/更新: {}，删除: {}，阅读量更新: {}",
+                changedArticleDOS.size(), deletedIds.size(), readNumChangedDOS.size());
+    }
+
+    /**
+     * 构建文章文档，正文、分类与标签按批次查询
+     * @param articleDOS
+     * @return
+     */
+    private List<Document> buildDocuments(List<ArticleDO> articleDOS) {
+        List<Document> documents = Lists.newArrayListWithCapacity(articleDOS.size());
+        for (List<ArticleDO> batch : Lists.partition(articleDOS, CONTENT_BATCH_SIZE)) {
+            List<Long> articleIds = batch.stream().map(ArticleDO::getId).collect(Collectors.toList());
+            Map<Long, String> contents = articleContentMapper.selectByArticleIds(articleIds).stream()
+                    .collect(Collectors.toMap(ArticleContentDO::getArticleId, ArticleContentDO::getContent, (a, b) -> a));
+            ArticleRelations relations = articleRelationLoader.load(articleIds);
+
+            batch.forEach(articleDO -> documents.add(
+                    ArticleDocumentBuilder.build(articleDO, contents.getOrDefault(articleDO.getId(), ""), relations,
+                            luceneProperties.isLeanIndex())));
+        }
+        return documents;
+    }
+
+    /**
+     * 读取索引中现存的文章 ID 及其阅读量
+     * @param engine
+     * @return 文章 ID -> 阅读量
+     * @throws IOException
+     */
+    private Map<Long, Long> readIndexedReadNums(LuceneIndexEngine engine) throws IOException {
+        Map<Long, Long> readNums = new HashMap<>();
+        IndexSearcher searcher = engine.acquire();
+        try {
+            for (LeafReaderContext context : searcher.getIndexReader().leaves()) {
+                LeafReader reader = context.reader();
+                Terms terms = reader.terms(ArticleIndex.COLUMN_ID);
+                if (Objects.isNull(terms)) {
+                    continue;
+                }
+
+                // 遍历 ID 词项，跳过只出现在已删除文档中的 ID
+                Bits liveDocs = reader.getLiveDocs();
+                TermsEnum termsEnum = terms.iterator();
+                PostingsEnum postings = null;
+                BytesRef term;
+                while ((term = termsEnum.next()) != null) {
+                    postings = termsEnum.postings(postings, PostingsEnum.NONE);
+                    for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+                        if (Objects.isNull(liveDocs) || liveDocs.get(doc)) {
+                            // 列存只能顺序前进，词项按字典序而非文档号排列，每个文档单独取迭代器
+                            NumericDocValues values = DocValues.getNumeric(reader, ArticleIndex.COLUMN_READ_NUM);
+                            readNums.put(Long.valueOf(term.utf8ToString()), values.advanceExact(doc) ? values.longValue() : 0L);
+                            break;
+                        }
+                    }
+                }
+            }
+        } finally {
+            engine.release(searcher);
+        }
+        return readNums;
+    }
+
+    private static long readNumOf(ArticleDO articleDO) {
+        return Objects.isNull(articleDO.getReadNum()) ? 0L : articleDO.getReadNum();
+    }
+
+    /**
+     * 当前配置的索引结构版本，精简索引的文档结构不同，切换索引模式同样会触发全量重建
+     * @return
+     */
+    private String schemaVersion() {
+        return luceneProperties.isLeanIndex() ? ArticleIndex.SCHEMA_VERSION + ArticleIndex.LEAN_SCHEMA_SUFFIX
+                : ArticleIndex.SCHEMA_VERSION;
+    }
+
+    /**
+     * 构建同步水位线的提交数据
+     * @param maxId 已同步的最大文章 ID
+     * @param updateTime 已同步的最大更新时间
+     * @return 提交数据
+     */
+    private Map<String, String> watermark(long maxId, LocalDateTime updateTime) {
+        Map<String, String> userData = new HashMap<>();
+        userData.put(KEY_SCHEMA_VERSION, schemaVersion());
+        userData.put(KEY_SYNC_MAX_ID, String.valueOf(maxId));
+        if (Objects.nonNull(updateTime)) {
+            userData.put(KEY_SYNC_UPDATE_TIME, updateTime.toString());
+        }
+        return userData;
+    }
+}
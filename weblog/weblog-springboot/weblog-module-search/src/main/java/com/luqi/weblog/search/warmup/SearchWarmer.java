@@ -0,0 +1,333 @@
+package com.luqi.weblog.search.warmup;
+
+import com.baomidou.mybatisplus.core.toolkit.StringUtils;
+import com.luqi.weblog.search.LuceneHelper;
+import com.luqi.weblog.search.config.LuceneProperties;
+import com.luqi.weblog.search.engine.LuceneIndexEngine;
+import com.luqi.weblog.search.guard.QueryCostExceededException;
+import com.luqi.weblog.search.index.ArticleIndex;
+import com.luqi.weblog.search.metrics.QueryCount;
+import com.luqi.weblog.search.metrics.SearchMetrics;
+import com.luqi.weblog.search.metrics.SearchMode;
+import com.luqi.weblog.search.model.SearchRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: Warms the article searchers before they serve traffic: at startup (before the application
+ * reports ready) and for every searcher the engine opens after an NRT reopen or a rebuild swap.
+ * The segments new to the searcher get their term dictionaries, norms, points and doc values touched.
+ * A searcher over a whole new index (startup, swap) also gets the most frequent recorded queries replayed
+ * against it, within a time budget; NRT reopens only add a few small segments and run inline with every
+ * publish, so they skip the replay.
+ * The top queries are saved next to the index on shutdown, so a restarted instance replays the queries
+ * of the previous one until it has recorded its own
+ **/
+@Component
+@Slf4j
+public class SearchWarmer {
+
+    /**
+     * File holding the top queries of the previous run, one "MODE\tword" per line
+     */
+    private static final String QUERIES_FILE = "warmup-queries.txt";
+
+    /**
+     * Mixed text analyzed once per warm-up, the first analysis loads the SmartChinese dictionaries
+     */
+    private static final String ANALYZER_SAMPLE = "Lucene 全文检索预热";
+
+    @Autowired
+    private LuceneHelper luceneHelper;
+    @Autowired
+    private SearchMetrics searchMetrics;
+    @Autowired
+    private LuceneProperties properties;
+
+    /**
+     * Top queries of the previous run, used until enough queries are recorded in this one
+     */
+    private volatile List<QueryCount> savedQueries = Collections.emptyList();
+
+    @PostConstruct
+    public void init() {
+        savedQueries = loadQueries();
+        luceneHelper.getEngine(ArticleIndex.NAME).setSearcherWarmer(this::warm);
+    }
+
+    /**
+     * Warm the current searcher, called at startup before the application accepts traffic
+     */
+    public void warmUp() {
+        LuceneIndexEngine engine = luceneHelper.getEngine(ArticleIndex.NAME);
+        try {
+            IndexSearcher searcher = engine.acquire();
+            try {
+                warm(searcher, null);
+            } finally {
+                engine.release(searcher);
+            }
+        } catch (IOException e) {
+            log.warn("==> Failed to warm up the article searcher: ", e);
+        }
+    }
+
+    /**
+     * Save the top queries for the next run
+     */
+    @PreDestroy
+    public void close() {
+        Path file = queriesFile();
+        if (Objects.isNull(file)) {
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        for (QueryCount query : replayQueries()) {
+            lines.add(query.getMode().name() + '\t' + query.getWord());
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(file, lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.warn("==> Failed to save the warm-up queries: {}", file, e);
+        }
+    }
+
+    /**
+     * Warm a searcher that is not published yet, failures are logged and never keep it from being published
+     * @param searcher
+     * @param previousReader
+     */
+    private void warm(IndexSearcher searcher, IndexReader previousReader) {
+        long start = System.currentTimeMillis();
+        int segments = 0;
+        if (Objects.nonNull(previousReader)) {
+            try {
+                segments = touchNewSegments(searcher.getIndexReader(), previousReader);
+            } catch (Exception e) {
+                log.warn("==> Failed to warm up the new segments of a reopened searcher: ", e);
+            }
+            log.debug("==> Warmed up the reopened article searcher, new segments: {}, {}ms",
+                    segments, System.currentTimeMillis() - start);
+            return;
+        }
+
+        long deadline = start + properties.getWarmupMaxMillis();
+        int queries = 0;
+        try {
+            segments = touchNewSegments(searcher.getIndexReader(), null);
+            analyzeSample();
+            for (QueryCount query : replayQueries()) {
+                if (System.currentTimeMillis() >= deadline) {
+                    break;
+                }
+                try {
+                    luceneHelper.warm(searcher, requestOf(query));
+                    queries++;
+                } catch (QueryCostExceededException e) {
+                    // The budget may have changed since the query was recorded
+                    log.debug("==> Skipped warm-up query over the cost budget: {}", query.getWord());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("==> Failed to warm up a new searcher: ", e);
+        }
+        log.info("==> Warmed up the article searcher, new segments: {}, queries: {}, {}ms",
+                segments, queries, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Touch the per-field structures of the segments the previous reader did not have, so their index files
+     * are paged in and their lazily loaded parts are built before the first search
+     * @param reader
+     * @param previousReader
+     * @return Number of segments touched
+     * @throws IOException
+     */
+    private int touchNewSegments(IndexReader reader, IndexReader previousReader) throws IOException {
+        Set<Object> previousCores = new HashSet<>();
+        if (Objects.nonNull(previousReader)) {
+            for (LeafReaderContext context : previousReader.leaves()) {
+                previousCores.add(context.reader().getCoreCacheHelper().getKey());
+            }
+        }
+
+        int touched = 0;
+        for (LeafReaderContext context : reader.leaves()) {
+            LeafReader leaf = context.reader();
+            if (previousCores.contains(leaf.getCoreCacheHelper().getKey())) {
+                continue;
+            }
+            for (FieldInfo fieldInfo : leaf.getFieldInfos()) {
+                touchField(leaf, fieldInfo);
+            }
+            touched++;
+        }
+        return touched;
+    }
+
+    private static void touchField(LeafReader leaf, FieldInfo fieldInfo) throws IOException {
+        String field = fieldInfo.name;
+        if (fieldInfo.getIndexOptions() != IndexOptions.NONE) {
+            Terms terms = leaf.terms(field);
+            if (Objects.nonNull(terms)) {
+                terms.iterator().next();
+            }
+            if (fieldInfo.hasNorms()) {
+                advance(leaf.getNormValues(field));
+            }
+        }
+        if (fieldInfo.getPointDimensionCount() > 0) {
+            PointValues points = leaf.getPointValues(field);
+            if (Objects.nonNull(points)) {
+                points.getMinPackedValue();
+            }
+        }
+        switch (fieldInfo.getDocValuesType()) {
+            case NUMERIC:
+                advance(leaf.getNumericDocValues(field));
+                break;
+            case BINARY:
+                advance(leaf.getBinaryDocValues(field));
+                break;
+            case SORTED:
+                advance(leaf.getSortedDocValues(field));
+                break;
+            case SORTED_NUMERIC:
+                advance(leaf.getSortedNumericDocValues(field));
+                break;
+            case SORTED_SET:
+                advance(leaf.getSortedSetDocValues(field));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void advance(DocIdSetIterator iterator) throws IOException {
+        if (Objects.nonNull(iterator)) {
+            iterator.nextDoc();
+        }
+    }
+
+    private void analyzeSample() throws IOException {
+        try (TokenStream tokenStream = luceneHelper.getEngine(ArticleIndex.NAME).getAnalyzer()
+                .tokenStream(ArticleIndex.COLUMN_TITLE, ANALYZER_SAMPLE)) {
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                // Only the analysis itself matters
+            }
+            tokenStream.end();
+        }
+    }
+
+    /**
+     * Queries to replay: the most frequent ones of this run, completed with those of the previous run
+     * @return
+     */
+    private List<QueryCount> replayQueries() {
+        int size = properties.getWarmupQueries();
+        if (size <= 0) {
+            return Collections.emptyList();
+        }
+        List<QueryCount> candidates = new ArrayList<>(searchMetrics.getTopQueries(size));
+        candidates.addAll(savedQueries);
+
+        Set<String> seen = new HashSet<>();
+        List<QueryCount> queries = new ArrayList<>(size);
+        for (QueryCount query : candidates) {
+            if (queries.size() < size && seen.add(query.getMode() + "\t" + query.getWord())) {
+                queries.add(query);
+            }
+        }
+        return queries;
+    }
+
+    /**
+     * Same request as the article search page sends for the query, so the same fields, highlights and
+     * facets are warmed
+     * @param query
+     * @return
+     */
+    private SearchRequest requestOf(QueryCount query) {
+        boolean wildcard = query.getMode() == SearchMode.WILDCARD;
+        boolean lean = properties.isLeanIndex();
+        String[] columns = {ArticleIndex.COLUMN_TITLE, ArticleIndex.COLUMN_SUMMARY};
+        return SearchRequest.builder()
+                .index(ArticleIndex.NAME)
+                .word(query.getWord())
+                .columns(wildcard ? columns
+                        : new String[]{ArticleIndex.COLUMN_TITLE, ArticleIndex.COLUMN_SUMMARY, ArticleIndex.COLUMN_CONTENT})
+                .fuzzySearch(query.getMode() == SearchMode.FUZZY)
+                .wildcardSearch(wildcard)
+                .idColumn(lean ? ArticleIndex.COLUMN_ID : null)
+                .highlightColumns(columns)
+                .snippetColumns(lean ? null : new String[]{ArticleIndex.COLUMN_CONTENT})
+                .facetDims(new String[]{ArticleIndex.FACET_CATEGORY, ArticleIndex.FACET_TAG})
+                .build();
+    }
+
+    private List<QueryCount> loadQueries() {
+        Path file = queriesFile();
+        if (Objects.isNull(file) || !Files.exists(file)) {
+            return Collections.emptyList();
+        }
+        Set<QueryCount> queries = new LinkedHashSet<>();
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                int tab = line.indexOf('\t');
+                if (tab <= 0 || tab == line.length() - 1) {
+                    continue;
+                }
+                try {
+                    queries.add(QueryCount.builder()
+                            .mode(SearchMode.valueOf(line.substring(0, tab)))
+                            .word(line.substring(tab + 1))
+                            .build());
+                } catch (IllegalArgumentException e) {
+                    log.debug("==> Skipped unknown warm-up query line: {}", line);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("==> Failed to load the warm-up queries: {}", file, e);
+        }
+        log.info("==> Loaded {} warm-up queries of the previous run", queries.size());
+        return new ArrayList<>(queries);
+    }
+
+    /**
+     * Saved queries file, null when the index has no directory
+     * @return
+     */
+    private Path queriesFile() {
+        return StringUtils.isBlank(properties.getIndexDir()) ? null : Paths.get(properties.getIndexDir(), QUERIES_FILE);
+    }
+}
@@ -3,6 +3,7 @@ package com.luqi.weblog.web.controller;
 import com.luqi.weblog.common.aspect.ApiOperationLog;
 import com.luqi.weblog.common.utils.Response;
 import com.luqi.weblog.web.model.vo.search.SearchArticlePageListReqVO;
+import com.luqi.weblog.web.model.vo.search.SearchSuggestReqVO;
 import com.luqi.weblog.web.service.SearchService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -25,4 +26,10 @@ public class SearchController {
     public Response searchArticlePageList(@RequestBody @Validated SearchArticlePageListReqVO searchArticlePageListReqVO) {
         return searchService.searchArticlePageList(searchArticlePageListReqVO);
     }
+
+    @PostMapping("/article/search/suggest")
+    @ApiOperation(value = "搜索联想")
+    public Response suggest(@RequestBody @Validated SearchSuggestReqVO searchSuggestReqVO) {
+        return searchService.suggest(searchSuggestReqVO);
+    }
 }
\ No newline at end of file
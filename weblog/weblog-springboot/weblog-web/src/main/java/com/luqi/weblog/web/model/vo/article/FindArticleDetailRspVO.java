@@ -56,6 +56,10 @@ public class FindArticleDetailRspVO {
      * Next article
      */
     private FindPreNextArticleRspVO nextArticle;
+    /**
+     * Related articles
+     */
+    private List<FindRelatedArticleRspVO> relatedArticles;
     
     /**
      * Total word count
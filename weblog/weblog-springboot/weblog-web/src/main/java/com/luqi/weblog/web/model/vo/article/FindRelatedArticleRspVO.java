@@ -0,0 +1,39 @@
+package com.luqi.weblog.web.model.vo.article;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author: Lu Qi
+ * @url: www.luqi.com
+ * @description: Related article
+ **/
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class FindRelatedArticleRspVO {
+    /**
+     * Article ID
+     */
+    private Long articleId;
+
+    /**
+     * Article title
+     */
+    private String articleTitle;
+
+    /**
+     * Article cover
+     */
+    private String cover;
+
+    /**
+     * Publication time
+     */
+    private LocalDateTime createTime;
+}
\ No newline at end of file
@@ -11,6 +11,8 @@ import lombok.NoArgsConstructor;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
+import java.time.LocalDate;
+import java.util.List;
 
 @Data
 @Builder
@@ -44,4 +46,46 @@ public class SearchArticlePageListReqVO extends BasePageQuery {
      */
     @ApiModelProperty(value = "是否启用通配符搜索", example = "false")
     private Boolean wildcardSearch = false;
+
+    /**
+     * 翻页游标（上一页响应中的 nextCursor），传入后按游标获取下一页
+     */
+    @ApiModelProperty(value = "翻页游标")
+    private String cursor;
+
+    /**
+     * 排序方式：relevance（相关度，默认）、popular（相关度按阅读量加权）、reads（阅读量最多）、newest（最新发布）、oldest（最早发布）
+     */
+    @ApiModelProperty(value = "排序方式", allowableValues = "relevance,popular,reads,newest,oldest", example = "relevance")
+    private String sort;
+
+    /**
+     * 发布开始日期
+     */
+    @ApiModelProperty(value = "发布开始日期")
+    private LocalDate startDate;
+
+    /**
+     * 发布结束日期（包含当天）
+     */
+    @ApiModelProperty(value = "发布结束日期")
+    private LocalDate endDate;
+
+    /**
+     * 按分类筛选（下钻）
+     */
+    @ApiModelProperty(value = "分类 ID")
+    private Long categoryId;
+
+    /**
+     * 按标签筛选（下钻），命中任一标签即可
+     */
+    @ApiModelProperty(value = "标签 ID 集合")
+    private List<Long> tagIds;
+
+    /**
+     * 是否统计分类、标签数量。统计需要遍历全部命中结果，未指定时只在第一页（不带游标）统计，后续页沿用第一页的统计
+     */
+    @ApiModelProperty(value = "是否统计分类、标签数量，默认仅第一页统计")
+    private Boolean facets;
 }
\ No newline at end of file
@@ -26,6 +26,10 @@ public class SearchArticlePageListRspVO {
      * 摘要
      */
     private String summary;
+    /**
+     * 正文高亮片段
+     */
+    private String contentSnippet;
     /**
      * 发布日期
      */
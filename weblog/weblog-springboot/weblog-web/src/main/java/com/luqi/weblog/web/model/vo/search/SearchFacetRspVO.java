@@ -0,0 +1,25 @@
+package com.luqi.weblog.web.model.vo.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SearchFacetRspVO {
+    /**
+     * 分类 ID 或标签 ID
+     */
+    private Long id;
+    /**
+     * 分类名或标签名
+     */
+    private String name;
+    /**
+     * 命中的文章数
+     */
+    private Long count;
+}
\ No newline at end of file
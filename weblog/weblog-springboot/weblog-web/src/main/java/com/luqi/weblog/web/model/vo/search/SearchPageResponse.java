@@ -0,0 +1,62 @@
+package com.luqi.weblog.web.model.vo.search;
+
+import com.luqi.weblog.common.utils.PageResponse;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.List;
+
+/**
+ * @author: luqi
+ * @url: www.luqi.com
+ * @description: 搜索分页响应，在分页数据基础上附带搜索相关信息
+ **/
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class SearchPageResponse<T> extends PageResponse<T> {
+
+    /**
+     * 总记录数是否精确，false 表示命中数超过统计阈值，total 仅为下限
+     */
+    private boolean totalExact = true;
+
+    /**
+     * 是否为部分结果，true 表示搜索超时，仅返回超时前已检索到的命中
+     */
+    private boolean partial;
+
+    /**
+     * 下一页游标，为空表示没有下一页
+     */
+    private String nextCursor;
+
+    /**
+     * 拼写纠错建议（"您是不是要找"），仅在精确搜索命中很少时返回
+     */
+    private String suggestion;
+
+    /**
+     * 命中文章按分类统计的数量（与分页结果同一次检索得出），未统计时（默认第一页之后）为空
+     */
+    private List<SearchFacetRspVO> categoryFacets;
+
+    /**
+     * 命中文章按标签统计的数量
+     */
+    private List<SearchFacetRspVO> tagFacets;
+
+    public static <T> SearchPageResponse<T> success(long total, boolean totalExact, String nextCursor, long current, long size, List<T> data) {
+        SearchPageResponse<T> response = new SearchPageResponse<>();
+        response.setSuccess(true);
+        response.setCurrent(current);
+        response.setSize(size);
+        // 计算总页数
+        int pages = (int) Math.ceil((double) total / size);
+        response.setPages(pages);
+        response.setTotal(total);
+        response.setTotalExact(totalExact);
+        response.setNextCursor(nextCursor);
+        response.setData(data);
+        return response;
+    }
+}
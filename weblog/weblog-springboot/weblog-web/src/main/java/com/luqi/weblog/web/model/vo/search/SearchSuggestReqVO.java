@@ -0,0 +1,35 @@
+package com.luqi.weblog.web.model.vo.search;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@ApiModel(value = "搜索联想 VO")
+public class SearchSuggestReqVO {
+    /**
+     * 已输入的关键词
+     */
+    @NotBlank(message = "搜索关键词不能为空")
+    @ApiModelProperty(value = "已输入的关键词", required = true)
+    private String word;
+
+    /**
+     * 返回的联想词条数
+     */
+    @Min(value = 1, message = "联想词条数不能小于1")
+    @Max(value = 20, message = "联想词条数不能大于20")
+    @ApiModelProperty(value = "返回的联想词条数", example = "8")
+    @Builder.Default
+    private Integer size = 8;
+}
\ No newline at end of file
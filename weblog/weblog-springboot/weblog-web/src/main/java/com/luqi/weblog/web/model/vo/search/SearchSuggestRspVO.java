@@ -0,0 +1,25 @@
+package com.luqi.weblog.web.model.vo.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SearchSuggestRspVO {
+    /**
+     * 联想类型：article 文章标题，tag 标签
+     */
+    private String type;
+    /**
+     * 文章 ID 或标签 ID
+     */
+    private Long id;
+    /**
+     * 联想文本（文章标题或标签名）
+     */
+    private String text;
+}
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.luqi.weblog.web.service;
 
 import com.luqi.weblog.common.utils.Response;
 import com.luqi.weblog.web.model.vo.search.SearchArticlePageListReqVO;
+import com.luqi.weblog.web.model.vo.search.SearchSuggestReqVO;
 
 public interface SearchService {
 
@@ -11,4 +12,11 @@ public interface SearchService {
      * @return
      */
     Response searchArticlePageList(SearchArticlePageListReqVO searchArticlePageListReqVO);
+
+    /**
+     * 搜索联想（文章标题、标签名）
+     * @param searchSuggestReqVO
+     * @return
+     */
+    Response suggest(SearchSuggestReqVO searchSuggestReqVO);
 }
\ No newline at end of file
@@ -10,6 +10,7 @@ import com.luqi.weblog.common.enums.ResponseCodeEnum;
 import com.luqi.weblog.common.exception.BizException;
 import com.luqi.weblog.common.utils.PageResponse;
 import com.luqi.weblog.common.utils.Response;
+import com.luqi.weblog.search.related.RelatedArticleCache;
 import com.luqi.weblog.web.convert.ArticleConvert;
 import com.luqi.weblog.web.markdown.MarkdownHelper;
 import com.luqi.weblog.web.model.vo.article.*;
@@ -53,6 +54,8 @@ public class ArticleServiceImpl implements ArticleService {
     private ArticleTagRelMapper articleTagRelMapper;
     @Autowired
     private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private RelatedArticleCache relatedArticleCache;
 
     /**
      * 获取首页文章分页数据
@@ -216,6 +219,17 @@ public class ArticleServiceImpl implements ArticleService {
             vo.setNextArticle(nextArticleVO);
         }
 
+        // 相关文章（只读缓存，由文章发布/更新/删除事件在后台重新计算）
+        List<FindRelatedArticleRspVO> relatedArticleVOS = relatedArticleCache.get(articleId).stream()
+                .map(relatedArticle -> FindRelatedArticleRspVO.builder()
+                        .articleId(relatedArticle.getId())
+                        .articleTitle(relatedArticle.getTitle())
+                        .cover(relatedArticle.getCover())
+                        .createTime(relatedArticle.getCreateTime())
+                        .build())
+                .collect(Collectors.toList());
+        vo.setRelatedArticles(relatedArticleVOS);
+
         // 发布文章阅读事件
         eventPublisher.publishEvent(new ReadArticleEvent(this, articleId));
 
@@ -1,42 +1,71 @@
 package com.luqi.weblog.web.service.impl;
 
 import com.google.common.collect.Lists;
-import com.luqi.weblog.common.utils.PageResponse;
+import com.luqi.weblog.common.constant.Constants;
+import com.luqi.weblog.common.enums.ResponseCodeEnum;
+import com.luqi.weblog.common.exception.BizException;
 import com.luqi.weblog.common.utils.Response;
 import com.luqi.weblog.search.LuceneHelper;
 import com.luqi.weblog.search.config.LuceneProperties;
+import com.luqi.weblog.search.guard.QueryCostExceededException;
+import com.luqi.weblog.search.index.ArticleDocumentBuilder;
+import com.luqi.weblog.search.index.ArticleFacets;
 import com.luqi.weblog.search.index.ArticleIndex;
+import com.luqi.weblog.search.model.FacetCount;
+import com.luqi.weblog.search.model.InvalidSearchCursorException;
+import com.luqi.weblog.search.model.SearchRequest;
+import com.luqi.weblog.search.model.SearchResult;
+import com.luqi.weblog.search.suggest.ArticleSuggester;
+import com.luqi.weblog.search.suggest.Suggestion;
+import com.luqi.weblog.search.summary.ArticleSummary;
+import com.luqi.weblog.search.summary.ArticleSummaryCache;
 import com.luqi.weblog.web.model.vo.search.SearchArticlePageListReqVO;
 import com.luqi.weblog.web.model.vo.search.SearchArticlePageListRspVO;
+import com.luqi.weblog.web.model.vo.search.SearchFacetRspVO;
+import com.luqi.weblog.web.model.vo.search.SearchPageResponse;
+import com.luqi.weblog.web.model.vo.search.SearchSuggestReqVO;
+import com.luqi.weblog.web.model.vo.search.SearchSuggestRspVO;
 import com.luqi.weblog.web.service.SearchService;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.analysis.TokenStream;
-import com.luqi.weblog.search.analyzer.MultilingualAnalyzer;
 import org.apache.lucene.document.Document;
-import org.apache.lucene.queryparser.classic.ParseException;
-import org.apache.lucene.queryparser.classic.QueryParser;
-import org.apache.lucene.search.Query;
-import org.apache.lucene.search.highlight.Highlighter;
-import org.apache.lucene.search.highlight.QueryScorer;
-import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
-import java.io.File;
-import java.io.StringReader;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class SearchServiceImpl implements SearchService {
 
+    /**
+     * Sort orders by publish time
+     */
+    private static final String SORT_NEWEST = "newest";
+    private static final String SORT_OLDEST = "oldest";
+
+    /**
+     * Relevance boosted by the read count, and sort by the read count
+     */
+    private static final String SORT_POPULAR = "popular";
+    private static final String SORT_READS = "reads";
+
     @Autowired
     private LuceneProperties luceneProperties;
     @Autowired
     private LuceneHelper luceneHelper;
+    @Autowired
+    private ArticleSuggester articleSuggester;
+    @Autowired
+    private ArticleSummaryCache articleSummaryCache;
 
     @Override
     public Response searchArticlePageList(SearchArticlePageListReqVO searchArticlePageListReqVO) {
@@ -45,8 +74,16 @@ public class SearchServiceImpl implements SearchService {
 
         // Query keyword
         String word = searchArticlePageListReqVO.getWord();
+        // Cursor of the previous page
+        String cursor = searchArticlePageListReqVO.getCursor();
 
-        // Fields to search (specifies searching article title and summary, any field containing the keyword will be found)
+        // Offset paging is only allowed for the first pages, deeper pages must use the cursor
+        if (StringUtils.isBlank(cursor) && current > luceneProperties.getMaxOffsetPage()) {
+            log.warn("==> Search page too deep without cursor, current: {}", current);
+            throw new BizException(ResponseCodeEnum.SEARCH_PAGE_TOO_DEEP);
+        }
+
+        // Fields highlighted in full
         String[] columns = {ArticleIndex.COLUMN_TITLE, ArticleIndex.COLUMN_SUMMARY};
 
         // Get search parameters
@@ -65,84 +102,227 @@ public class SearchServiceImpl implements SearchService {
             wildcardSearch = false;
         }
 
-        // Query total record count
-        long total;
-        if (wildcardSearch) {
-            total = luceneHelper.searchWildcardTotal(ArticleIndex.NAME, word, columns);
-        } else if (fuzzySearch) {
-            total = luceneHelper.searchFuzzyTotal(ArticleIndex.NAME, word, columns, maxEdits);
-        } else {
-            total = luceneHelper.searchTotal(ArticleIndex.NAME, word, columns);
+        // Fields to search, any field containing the keyword will be found. Content is searched too
+        // (its snippets come from the postings), except by wildcard search: content has no n-gram sub-field,
+        // a "contains" pattern on it would scan its whole term dictionary
+        String[] searchColumns = wildcardSearch ? columns
+                : new String[]{ArticleIndex.COLUMN_TITLE, ArticleIndex.COLUMN_SUMMARY, ArticleIndex.COLUMN_CONTENT};
+
+        // Sort by publish time or read count (DocValues) instead of relevance, or weight relevance by the read count
+        String sort = searchArticlePageListReqVO.getSort();
+        String sortColumn = null;
+        boolean sortAscending = false;
+        String boostColumn = null;
+        if (SORT_NEWEST.equalsIgnoreCase(sort)) {
+            sortColumn = ArticleIndex.COLUMN_CREATE_TIME;
+        } else if (SORT_OLDEST.equalsIgnoreCase(sort)) {
+            sortColumn = ArticleIndex.COLUMN_CREATE_TIME;
+            sortAscending = true;
+        } else if (SORT_READS.equalsIgnoreCase(sort)) {
+            sortColumn = ArticleIndex.COLUMN_READ_NUM;
+        } else if (SORT_POPULAR.equalsIgnoreCase(sort)) {
+            boostColumn = ArticleIndex.COLUMN_READ_NUM;
         }
 
-        // Execute search (paginated query)
-        List<Document> documents = luceneHelper.search(ArticleIndex.NAME, word, columns, current, size, fuzzySearch, maxEdits, wildcardSearch);
+        // Publish date range, the end date is inclusive
+        LocalDate startDate = searchArticlePageListReqVO.getStartDate();
+        LocalDate endDate = searchArticlePageListReqVO.getEndDate();
+        Long rangeFrom = Objects.isNull(startDate) ? null : ArticleDocumentBuilder.toEpochMilli(startDate.atStartOfDay());
+        Long rangeTo = Objects.isNull(endDate) ? null : ArticleDocumentBuilder.toEpochMilli(endDate.plusDays(1).atStartOfDay()) - 1;
 
-        // If no relevant documents found, return directly
-        if (CollectionUtils.isEmpty(documents)) {
-            return PageResponse.success(total, current, size, null);
+        // Drill down by category / tags (exact id terms)
+        Map<String, List<String>> filters = new HashMap<>();
+        Long categoryId = searchArticlePageListReqVO.getCategoryId();
+        if (Objects.nonNull(categoryId)) {
+            filters.put(ArticleIndex.COLUMN_CATEGORY_ID, Collections.singletonList(String.valueOf(categoryId)));
+        }
+        List<Long> tagIds = searchArticlePageListReqVO.getTagIds();
+        if (!CollectionUtils.isEmpty(tagIds)) {
+            filters.put(ArticleIndex.COLUMN_TAG_ID, tagIds.stream().map(String::valueOf).distinct().sorted().collect(Collectors.toList()));
         }
 
-        // ======================== Start keyword highlighting ========================
-        // Multilingual analyzer (supports Chinese and English)
-        MultilingualAnalyzer multilingualAnalyzer = new MultilingualAnalyzer();
-        // Select appropriate analyzer for highlighting based on search term
-        Analyzer analyzer = multilingualAnalyzer.selectAnalyzer(word);
-        QueryParser parser = new QueryParser(ArticleIndex.COLUMN_TITLE, analyzer);
-        Query query = null;
+        // A lean index stores only the article ID: hits are read as IDs and hydrated from the summary cache,
+        // and there is no content text to cut snippets from
+        boolean leanIndex = luceneProperties.isLeanIndex();
+
+        // Counting facets visits every hit and disables the early termination of the page collector,
+        // by default they are only counted for the first page, later pages keep the counts of the first one
+        Boolean facetsRequested = searchArticlePageListReqVO.getFacets();
+        boolean countFacets = Objects.nonNull(facetsRequested) ? facetsRequested : StringUtils.isBlank(cursor) && current <= 1;
+
+        // Execute search (paginated query and total count in a single pass)
+        SearchRequest searchRequest = SearchRequest.builder()
+                .index(ArticleIndex.NAME)
+                .word(word)
+                .columns(searchColumns)
+                .current(current)
+                .size(size)
+                .fuzzySearch(fuzzySearch)
+                .maxEdits(maxEdits)
+                .wildcardSearch(wildcardSearch)
+                .cursor(cursor)
+                .idColumn(leanIndex ? ArticleIndex.COLUMN_ID : null)
+                .highlightColumns(columns)
+                .snippetColumns(leanIndex ? null : new String[]{ArticleIndex.COLUMN_CONTENT})
+                .sortColumn(sortColumn)
+                .sortAscending(sortAscending)
+                .boostColumn(boostColumn)
+                .boostWeight(luceneProperties.getPopularityBoostWeight())
+                .rangeColumn(ArticleIndex.COLUMN_CREATE_TIME)
+                .rangeFrom(rangeFrom)
+                .rangeTo(rangeTo)
+                .filters(filters)
+                .facetDims(countFacets ? new String[]{ArticleIndex.FACET_CATEGORY, ArticleIndex.FACET_TAG} : null)
+                .build();
+        SearchResult searchResult;
         try {
-            query = parser.parse(word);
-        } catch (ParseException e) {
-            log.error("Error parsing keywords:", e);
+            searchResult = luceneHelper.search(searchRequest);
+        } catch (QueryCostExceededException e) {
+            // Too many keywords, too broad wildcards or too large an expansion
+            throw new BizException(ResponseCodeEnum.SEARCH_QUERY_TOO_COMPLEX);
+        } catch (InvalidSearchCursorException e) {
+            // Tampered cursor, or one issued for another sort order
+            throw new BizException(ResponseCodeEnum.SEARCH_CURSOR_INVALID);
         }
+        long total = searchResult.getTotal();
+        boolean totalExact = searchResult.isTotalExact();
+        String nextCursor = searchResult.getNextCursor();
+        List<Map<String, String>> highlights = searchResult.getHighlights();
+        // "Did you mean" correction, only present when the exact search found few hits
+        String suggestion = searchResult.getSuggestion();
+        // Hit counts per category / tag, counted in the same pass as the page
+        Map<String, List<FacetCount>> facets = searchResult.getFacets();
 
-        // Create highlighter
-        SimpleHTMLFormatter formatter = new SimpleHTMLFormatter("<span style=\"color: #f73131\">", "</span>");
-        Highlighter highlighter = new Highlighter(formatter, new QueryScorer(query));
+        // Hits of the page (null for articles no longer in the database), aligned with the highlights
+        List<ArticleSummary> hits = leanIndex ? hydrate(searchResult.getIds()) : toSummaries(searchResult.getDocuments());
+
+        // If no relevant documents found, return directly
+        if (CollectionUtils.isEmpty(hits)) {
+            SearchPageResponse<SearchArticlePageListRspVO> response = SearchPageResponse.success(total, totalExact, nextCursor, current, size, null);
+            response.setPartial(searchResult.isPartial());
+            response.setSuggestion(suggestion);
+            if (countFacets) {
+                response.setCategoryFacets(toFacetVOs(facets, ArticleIndex.FACET_CATEGORY));
+                response.setTagFacets(toFacetVOs(facets, ArticleIndex.FACET_TAG));
+            }
+            return response;
+        }
 
         // Response VOs
         List<SearchArticlePageListRspVO> vos = Lists.newArrayList();
-        // Iterate through found documents for keyword highlighting
-        documents.forEach(document -> {
+        // Highlights are produced by the search itself (offset based, one pass over the page)
+        for (int i = 0; i < hits.size(); i++) {
             try {
-                // Article title
-                String title = document.get(ArticleIndex.COLUMN_TITLE);
-
-                // Get highlighted fragment
-                TokenStream tokenStream = analyzer.tokenStream(ArticleIndex.COLUMN_TITLE, new StringReader(title));
-                String titleFragment = highlighter.getBestFragment(tokenStream, title);
+                ArticleSummary hit = hits.get(i);
+                if (Objects.isNull(hit)) {
+                    continue;
+                }
+                Map<String, String> highlight = CollectionUtils.isEmpty(highlights) ? Collections.emptyMap() : highlights.get(i);
 
                 // If no keyword matched, return original text
-                String highlightedTitle = StringUtils.isNoneBlank(titleFragment) ? titleFragment : title;
-
-                String id = document.get(ArticleIndex.COLUMN_ID);
-                String cover = document.get(ArticleIndex.COLUMN_COVER);
-                String createTime = document.get(ArticleIndex.COLUMN_CREATE_TIME);
-                String summary = document.get(ArticleIndex.COLUMN_SUMMARY);
+                String title = highlight.getOrDefault(ArticleIndex.COLUMN_TITLE, hit.getTitle());
+                String summary = highlight.getOrDefault(ArticleIndex.COLUMN_SUMMARY, hit.getSummary());
+                // Best content passages, absent when the content does not contain the keyword
+                String contentSnippet = highlight.get(ArticleIndex.COLUMN_CONTENT);
 
                 // Assemble VO
                 SearchArticlePageListRspVO vo = SearchArticlePageListRspVO.builder()
-                        .id(Long.valueOf(id))
-                        .title(highlightedTitle)
+                        .id(hit.getId())
+                        .title(title)
                         .summary(summary)
-                        .cover(cover)
-                        .createDate(createTime)
+                        .contentSnippet(contentSnippet)
+                        .cover(hit.getCover())
+                        .createDate(Objects.isNull(hit.getCreateTime()) ? null : Constants.DATE_TIME_FORMATTER.format(hit.getCreateTime()))
                         .build();
 
                 vos.add(vo);
             } catch (Exception e) {
                 log.error("Document conversion error: ", e);
             }
-        });
+        }
 
-        // Close analyzer resources
-        try {
-            analyzer.close();
-            multilingualAnalyzer.close();
-        } catch (Exception e) {
-            log.warn("Exception occurred when closing analyzer resources: ", e);
+        SearchPageResponse<SearchArticlePageListRspVO> response = SearchPageResponse.success(total, totalExact, nextCursor, current, size, vos);
+        response.setPartial(searchResult.isPartial());
+        response.setSuggestion(suggestion);
+        if (countFacets) {
+            response.setCategoryFacets(toFacetVOs(facets, ArticleIndex.FACET_CATEGORY));
+            response.setTagFacets(toFacetVOs(facets, ArticleIndex.FACET_TAG));
+        }
+        return response;
+    }
+
+    /**
+     * Hits of a full index, read from their stored fields
+     * @param documents
+     * @return
+     */
+    private List<ArticleSummary> toSummaries(List<Document> documents) {
+        return documents.stream()
+                .map(document -> {
+                    String createTime = document.get(ArticleIndex.COLUMN_CREATE_TIME);
+                    return ArticleSummary.builder()
+                            .id(Long.valueOf(document.get(ArticleIndex.COLUMN_ID)))
+                            .title(document.get(ArticleIndex.COLUMN_TITLE))
+                            .cover(document.get(ArticleIndex.COLUMN_COVER))
+                            .summary(document.get(ArticleIndex.COLUMN_SUMMARY))
+                            .createTime(Objects.isNull(createTime) ? null : LocalDateTime.parse(createTime, Constants.DATE_TIME_FORMATTER))
+                            .build();
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Hits of a lean index, hydrated from the article summary cache in one batch lookup
+     * @param ids
+     * @return Summaries aligned with ids, null for articles no longer in the database
+     */
+    private List<ArticleSummary> hydrate(List<Long> ids) {
+        if (CollectionUtils.isEmpty(ids)) {
+            return Collections.emptyList();
+        }
+        Map<Long, ArticleSummary> summaries = articleSummaryCache.getAll(ids);
+        return ids.stream().map(summaries::get).collect(Collectors.toList());
+    }
+
+    /**
+     * Facet counts of a dimension to VOs, the facet value carries both id and name
+     * @param facets
+     * @param dim
+     * @return
+     */
+    private List<SearchFacetRspVO> toFacetVOs(Map<String, List<FacetCount>> facets, String dim) {
+        if (CollectionUtils.isEmpty(facets)) {
+            return Collections.emptyList();
+        }
+        return facets.getOrDefault(dim, Collections.emptyList()).stream()
+                .map(facetCount -> SearchFacetRspVO.builder()
+                        .id(ArticleFacets.idOf(facetCount.getLabel()))
+                        .name(ArticleFacets.nameOf(facetCount.getLabel()))
+                        .count(facetCount.getCount())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Response suggest(SearchSuggestReqVO searchSuggestReqVO) {
+        // Use default value if not specified
+        Integer size = searchSuggestReqVO.getSize();
+        if (size == null) {
+            size = 8;
         }
 
-        return PageResponse.success(total, current, size, vos);
+        // Prefix / infix lookup on the in-memory suggest dictionary, the main index is not touched
+        List<Suggestion> suggestions = articleSuggester.lookup(searchSuggestReqVO.getWord(), size);
+
+        // DO to VO
+        List<SearchSuggestRspVO> vos = suggestions.stream()
+                .map(suggestion -> SearchSuggestRspVO.builder()
+                        .type(suggestion.getType().name().toLowerCase())
+                        .id(suggestion.getId())
+                        .text(suggestion.getText())
+                        .build())
+                .collect(Collectors.toList());
+
+        return Response.success(vos);
     }
 }
\ No newline at end of file